@@ -0,0 +1,61 @@
+package com.github.mrgarbagegamer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The consumers' per-candidate test (which replaced TestClickCombination.satisfiesOddAdjacency): one full batch of random
+ * combinations, none of which solves the grid, so every candidate is evaluated. Scores are per candidate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchEvaluatorBenchmark
+{
+    @Param({"13", "22", "35"})
+    public int question;
+
+    @Param({"7", "10"})
+    public int numClicks;
+
+    private BatchEvaluator evaluator;
+    private WorkBatch batch;
+
+    @Setup
+    public void setup()
+    {
+        Grid grid = Puzzles.grid(question);
+        evaluator = new BatchEvaluator(grid);
+        batch = new WorkBatch(CombinationGenerator.BATCH_SIZE);
+        Random random = new Random(42);
+        while (!batch.isFull())
+        {
+            long[] bitmask = Grid.indicesToBitmask(Puzzles.randomCombination(random, numClicks));
+            batch.add(bitmask[0], bitmask[1]);
+        }
+        if (evaluator.findSolution(batch, 0) != -1) throw new IllegalStateException("Random batch solved the grid, pick another seed");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CombinationGenerator.BATCH_SIZE)
+    public int findSolution()
+    {
+        return evaluator.findSolution(batch, 0);
+    }
+}
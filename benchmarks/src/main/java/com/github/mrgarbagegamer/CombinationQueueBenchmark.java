@@ -0,0 +1,57 @@
+package com.github.mrgarbagegamer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Handing batches from generators to consumers through one CombinationQueue with several threads on each side.
+ * A failed offer (queue full) or poll (queue empty) still counts as an operation, as it costs the caller a retry in the real pipeline.
+ * Run with -t to scale the groups, e.g. -t 8 for 4 producers and 4 consumers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class CombinationQueueBenchmark
+{
+    private CombinationQueue queue;
+    private WorkBatch batch;
+
+    @Setup
+    public void setup()
+    {
+        queue = new CombinationQueue();
+        batch = new WorkBatch(1); // Only references travel through the queue, so one shared batch is enough
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(2)
+    public boolean offer()
+    {
+        return queue.add(batch);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(2)
+    public void poll(Blackhole blackhole)
+    {
+        blackhole.consume(queue.getWorkBatch());
+    }
+}
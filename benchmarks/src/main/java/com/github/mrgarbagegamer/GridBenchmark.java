@@ -0,0 +1,83 @@
+package com.github.mrgarbagegamer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replaying a combination on a Grid the way consumers confirm a hit: click every cell, ask isSolved(), reset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridBenchmark
+{
+    private static final int COMBINATIONS = 1024;
+
+    @Param({"13", "22", "35"})
+    public int question;
+
+    @Param({"7", "10"})
+    public int numClicks;
+
+    private Grid grid;
+    private int[][] combinations;
+    private long[][] bitmasks;
+
+    @Setup
+    public void setup()
+    {
+        grid = Puzzles.grid(question);
+        Random random = new Random(42);
+        combinations = new int[COMBINATIONS][];
+        bitmasks = new long[COMBINATIONS][];
+        for (int i = 0; i < COMBINATIONS; i++)
+        {
+            combinations[i] = Puzzles.randomCombination(random, numClicks);
+            bitmasks[i] = Grid.indicesToBitmask(combinations[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINATIONS)
+    public int clickAndCheck()
+    {
+        int solved = 0;
+        for (int[] combination : combinations)
+        {
+            for (int cell : combination) grid.click(cell);
+            if (grid.isSolved()) solved++;
+            grid.initialize();
+        }
+        return solved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMBINATIONS)
+    public int clickBitmaskAndCheck()
+    {
+        int solved = 0;
+        for (long[] bitmask : bitmasks)
+        {
+            grid.clickBitmask(bitmask[0], bitmask[1]);
+            if (grid.isSolved()) solved++;
+            grid.initialize();
+        }
+        return solved;
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.mrgarbagegamer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The generator's two filters: canPotentiallySatisfyConstraints() on interior DFS states and quickOddAdjacency() on leaves.
+ * CombinationGenerator keeps its true-cell tables in statics that are set once per JVM, so every trial forks a fresh one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PruningBenchmark
+{
+    private static final int STATES = 1024;
+
+    @Param({"13", "22", "35"})
+    public int question;
+
+    @Param({"7", "10"})
+    public int numClicks;
+
+    private CombinationGenerator generator;
+    private CombinationState[] states;
+    private CombinationState[] parents; // What each state's parent would have cached
+    private long[] leafLo, leafHi;
+    private int firstTrueCell;
+
+    @Setup
+    public void setup()
+    {
+        Grid grid = Puzzles.grid(question);
+        int[] trueCells = grid.findTrueCells();
+        firstTrueCell = trueCells[0];
+        generator = new CombinationGenerator("Bench", new CombinationQueueArray(1, 1), numClicks, 0, 0, trueCells, grid.clone());
+
+        // Interior states of every depth the DFS checks (2 .. k-1 clicks), with the parent's parity and board cached like in the real search
+        Random random = new Random(42);
+        states = new CombinationState[STATES];
+        parents = new CombinationState[STATES];
+        leafLo = new long[STATES];
+        leafHi = new long[STATES];
+        for (int i = 0; i < STATES; i++)
+        {
+            int size = 2 + random.nextInt(Math.max(1, numClicks - 2));
+            int[] indices = Arrays.copyOf(Puzzles.randomCombination(random, size), numClicks);
+            states[i] = new CombinationState(indices[size - 1] + 1, size, indices, -1);
+            parents[i] = computeParent(indices, size);
+
+            long[] leaf = Grid.indicesToBitmask(Puzzles.randomCombination(random, numClicks));
+            leafLo[i] = leaf[0];
+            leafHi[i] = leaf[1];
+        }
+    }
+
+    private CombinationState computeParent(int[] indices, int size)
+    {
+        CombinationState parent = new CombinationState(0, size - 1, indices, -1);
+        generator.canPotentiallySatisfyConstraints(parent);
+        return parent;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES)
+    public int canPotentiallySatisfyConstraints()
+    {
+        int viable = 0;
+        for (int i = 0; i < STATES; i++)
+        {
+            CombinationState state = states[i];
+            // The check caches into the state, so start from the parent's values every time
+            state.adjacencies = parents[i].adjacencies;
+            state.boardLo = parents[i].boardLo;
+            state.boardHi = parents[i].boardHi;
+            if (generator.canPotentiallySatisfyConstraints(state)) viable++;
+        }
+        return viable;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES)
+    public int quickOddAdjacency()
+    {
+        int odd = 0;
+        for (int i = 0; i < STATES; i++)
+        {
+            if (CombinationGenerator.quickOddAdjacency(leafLo[i], leafHi[i], firstTrueCell)) odd++;
+        }
+        return odd;
+    }
+}
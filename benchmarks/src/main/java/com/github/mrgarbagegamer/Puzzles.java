@@ -0,0 +1,50 @@
+package com.github.mrgarbagegamer;
+
+import java.util.Random;
+
+/**
+ * Fixtures shared by the benchmarks. The benchmarks live in the solver's package so they can reach its package-private hot paths.
+ */
+final class Puzzles
+{
+    private Puzzles()
+    {
+    }
+
+    static Grid grid(int questionNumber)
+    {
+        switch (questionNumber)
+        {
+            case 13: return new Grid13();
+            case 22: return new Grid22();
+            case 35: return new Grid35();
+            default: throw new IllegalArgumentException("No grid for Q" + questionNumber);
+        }
+    }
+
+    /**
+     * Smallest first click past which no combination can toggle the grid's first true cell, as StartYourMonkeys computes it.
+     */
+    static int firstClickEnd(Grid grid)
+    {
+        int end = 0;
+        for (int adjacent : grid.findFirstTrueAdjacents(Grid.ValueFormat.Index)) end = Math.max(end, adjacent + 1);
+        return end;
+    }
+
+    /**
+     * A random combination of k distinct cells in index format, ascending, like the generator produces them.
+     */
+    static int[] randomCombination(Random random, int k)
+    {
+        long lo = 0L, hi = 0L;
+        for (int chosen = 0; chosen < k; )
+        {
+            int cell = random.nextInt(Grid.NUM_CELLS);
+            if (cell < 64 ? (lo & (1L << cell)) != 0 : (hi & (1L << (cell - 64))) != 0) continue;
+            if (cell < 64) lo |= 1L << cell; else hi |= 1L << (cell - 64);
+            chosen++;
+        }
+        return Grid.bitmaskToIndices(lo, hi);
+    }
+}
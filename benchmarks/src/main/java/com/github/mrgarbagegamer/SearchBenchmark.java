@@ -0,0 +1,55 @@
+package com.github.mrgarbagegamer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole fused search of one question on one thread: DFS, pruning and leaf tests together, i.e. what the tuning constants
+ * end up trading against each other. Small k only, so an iteration stays in the seconds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark
+{
+    @Param({"13", "22", "35"})
+    public int question;
+
+    @Param({"5", "6"})
+    public int numClicks;
+
+    private Grid grid;
+    private int[] trueCells;
+    private int firstClickEnd;
+
+    @Setup
+    public void setup()
+    {
+        grid = Puzzles.grid(question);
+        trueCells = grid.findTrueCells();
+        firstClickEnd = Puzzles.firstClickEnd(grid);
+    }
+
+    @Benchmark
+    public long fusedSearch()
+    {
+        CombinationGenerator generator = new CombinationGenerator("Bench", new CombinationQueueArray(1, 1), numClicks, 0, firstClickEnd, trueCells, grid.clone());
+        generator.search(CombinationGenerator.seedStack(0, firstClickEnd, numClicks), null);
+        generator.flushRemaining();
+        return generator.getCandidatesGenerated();
+    }
+}
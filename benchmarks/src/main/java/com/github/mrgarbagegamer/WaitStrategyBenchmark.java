@@ -0,0 +1,97 @@
+package com.github.mrgarbagegamer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for a waiting consumer to pick up a batch after a quiet period, per WaitStrategy.
+ * Each invocation hands a batch to a consumer thread that has been idle for quietMicros and waits for it to hand the batch back
+ * through a second queue, so the sample is one wake-up plus one ordinary handoff. The sampled percentiles show the tail: a
+ * consumer deep in its backoff (or parked after a lost signal) shows up at p99 long before it moves the mean.
+ * Spin and Yield need a core per thread to mean anything.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WaitStrategyBenchmark
+{
+    @Param({"Spin", "Yield", "Backoff", "Block"})
+    public WaitStrategy.Kind kind;
+
+    @Param({"0", "100", "2000"})
+    public long quietMicros;
+
+    private WaitStrategy waitStrategy;
+    private CombinationQueue requests, replies;
+    private WorkBatch batch;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        waitStrategy = WaitStrategy.create(kind);
+        requests = new CombinationQueue();
+        replies = new CombinationQueue();
+        batch = new WorkBatch(1);
+        running = true;
+        consumer = new Thread(this::consume, "Benchmark-Consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        running = false;
+        waitStrategy.signalAll();
+        consumer.join();
+    }
+
+    // Not timed: lets the consumer fall as deep into its wait strategy as a quiet generator would
+    @Setup(Level.Invocation)
+    public void quietPeriod()
+    {
+        if (quietMicros > 0) LockSupport.parkNanos(quietMicros * 1000);
+    }
+
+    @Benchmark
+    public WorkBatch handoff()
+    {
+        requests.add(batch);
+        waitStrategy.signal();
+
+        WorkBatch reply;
+        for (int attempt = 1; (reply = replies.getWorkBatch()) == null; attempt++) waitStrategy.idle(attempt);
+        return reply;
+    }
+
+    private void consume()
+    {
+        while (running)
+        {
+            WorkBatch work;
+            for (int attempt = 1; (work = requests.getWorkBatch()) == null && running; attempt++) waitStrategy.idle(attempt);
+            if (work == null) break;
+            replies.add(work);
+            waitStrategy.signal();
+        }
+    }
+}
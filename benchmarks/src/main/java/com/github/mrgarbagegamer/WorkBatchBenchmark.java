@@ -0,0 +1,61 @@
+package com.github.mrgarbagegamer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One WorkBatch round trip as the pipeline does it: the generator fills it, the consumer reads every combination back, then it is cleared
+ * for the pool. Scores are per combination.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkBatchBenchmark
+{
+    private static final int SIZE = CombinationGenerator.BATCH_SIZE;
+
+    private WorkBatch batch;
+    private long[] lo, hi;
+
+    @Setup
+    public void setup()
+    {
+        batch = new WorkBatch(SIZE);
+        lo = new long[SIZE];
+        hi = new long[SIZE];
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++)
+        {
+            long[] bitmask = Grid.indicesToBitmask(Puzzles.randomCombination(random, 8));
+            lo[i] = bitmask[0];
+            hi[i] = bitmask[1];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long fillReadClear()
+    {
+        for (int i = 0; i < SIZE; i++) batch.add(lo[i], hi[i]);
+
+        long checksum = 0;
+        for (int i = 0, count = batch.size(); i < count; i++) checksum ^= batch.lo(i) ^ batch.hi(i);
+        batch.clear();
+        return checksum;
+    }
+}
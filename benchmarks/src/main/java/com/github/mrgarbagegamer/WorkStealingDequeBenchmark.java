@@ -0,0 +1,69 @@
+package com.github.mrgarbagegamer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One consumer working its WorkStealingDeque (push, then pop newest first) while thieves steal half of it at a time.
+ * Compare the owner's rate with CombinationQueueBenchmark, where every consumer contends on the same MPMC queue.
+ * Run with -t to scale the group, e.g. -t 8 for the owner and 7 thieves.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class WorkStealingDequeBenchmark
+{
+    private WorkStealingDeque deque;
+    private WorkBatch batch;
+
+    @State(Scope.Thread)
+    public static class Thief
+    {
+        WorkStealingDeque own = new WorkStealingDeque(256);
+    }
+
+    @Setup
+    public void setup()
+    {
+        deque = new WorkStealingDeque(256);
+        batch = new WorkBatch(1); // Only references travel through the deque, so one shared batch is enough
+    }
+
+    @Benchmark
+    @Group("stealing")
+    @GroupThreads(1)
+    public void owner(Blackhole blackhole)
+    {
+        deque.push(batch);
+        deque.push(batch);
+        blackhole.consume(deque.pop());
+    }
+
+    @Benchmark
+    @Group("stealing")
+    @GroupThreads(3)
+    public void thief(Thief thief, Blackhole blackhole)
+    {
+        blackhole.consume(deque.stealHalf(thief.own));
+        while (thief.own.pop() != null)
+        {
+            // Drop what came along, the next steal starts from an empty deque like a real thief's
+        }
+    }
+}
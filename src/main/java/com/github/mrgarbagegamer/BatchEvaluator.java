@@ -0,0 +1,65 @@
+package com.github.mrgarbagegamer;
+
+/**
+ * Tests many click combinations at once against a puzzle grid.
+ * A combination solves the grid exactly when the XOR of its clicks' adjacency masks equals the grid state, so each candidate
+ * costs k table lookups and one 128-bit compare.
+ * Instances only hold the target state, so they can be shared between threads.
+ */
+public final class BatchEvaluator
+{
+    private static final long[] ADJ_LO = new long[Grid.NUM_CELLS];
+    private static final long[] ADJ_HI = new long[Grid.NUM_CELLS];
+
+    static
+    {
+        for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+        {
+            long[] mask = Grid.getAdjacencyMask(cell);
+            ADJ_LO[cell] = mask[0];
+            ADJ_HI[cell] = mask[1];
+        }
+    }
+
+    private final long targetLo, targetHi;
+
+    public BatchEvaluator(Grid grid)
+    {
+        long[] state = grid.getGridState();
+        this.targetLo = state[0];
+        this.targetHi = state[1];
+    }
+
+    /**
+     * Finds the first combination at or after position from in the batch that solves the grid.
+     * @return The position of the first solving combination, or -1 if there is none.
+     */
+    public int findSolution(WorkBatch batch, int from)
+    {
+        long[] masks = batch.masks();
+        for (int c = from, count = batch.size(); c < count; c++)
+        {
+            if (solves(masks[c << 1], masks[(c << 1) + 1])) return c;
+        }
+        return -1;
+    }
+
+    // Click combination in Bitmask format
+    private boolean solves(long clickLo, long clickHi)
+    {
+        long lo = 0L, hi = 0L;
+        for (long bits = clickLo; bits != 0; bits &= bits - 1)
+        {
+            int click = Long.numberOfTrailingZeros(bits);
+            lo ^= ADJ_LO[click];
+            hi ^= ADJ_HI[click];
+        }
+        for (long bits = clickHi; bits != 0; bits &= bits - 1)
+        {
+            int click = 64 + Long.numberOfTrailingZeros(bits);
+            lo ^= ADJ_LO[click];
+            hi ^= ADJ_HI[click];
+        }
+        return lo == targetLo && hi == targetHi;
+    }
+}
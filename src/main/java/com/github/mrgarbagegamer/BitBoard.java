@@ -0,0 +1,303 @@
+package com.github.mrgarbagegamer;
+
+/**
+ * Mutable board state of a BoardLayout for the wide-board search, with the operations its DFS needs.
+ * of() picks an implementation by the number of words once at startup: boards of up to 64, 128 and 256 cells keep their state in
+ * 1, 2 or 4 long fields and read their masks from one flat array per word, anything larger loops over a long[]. Only one
+ * implementation is ever loaded in a run, so the calls in the search loop are monomorphic and get inlined.
+ */
+public abstract class BitBoard
+{
+    protected final BoardLayout layout;
+
+    protected BitBoard(BoardLayout layout)
+    {
+        this.layout = layout;
+    }
+
+    /**
+     * A board of the given layout with the given state (getWords() longs).
+     */
+    public static BitBoard of(BoardLayout layout, long[] state)
+    {
+        switch (layout.getWords())
+        {
+            case 1: return new OneWord(layout, state);
+            case 2: return new TwoWords(layout, state);
+            case 3:
+            case 4: return new FourWords(layout, state);
+            default: return new ManyWords(layout, state);
+        }
+    }
+
+    /**
+     * Toggles the neighbours of the cell (Index format). Clicking twice undoes it.
+     */
+    public abstract void click(int cell);
+
+    /**
+     * True if a cell that no click at or after start can reach is still lit, so the current prefix is dead.
+     */
+    public abstract boolean frozenLit(int start);
+
+    /**
+     * True if clicking the cell would clear the whole board.
+     */
+    public abstract boolean clearedBy(int cell);
+
+    public abstract BitBoard copy();
+
+    // Word w of every cell's mask in one array, so the 1/2/4-word boards index it by cell without chasing a long[][] row
+    private static long[] column(long[][] masks, int w)
+    {
+        long[] column = new long[masks.length];
+        for (int i = 0; i < masks.length; i++) column[i] = (w < masks[i].length) ? masks[i][w] : 0L;
+        return column;
+    }
+
+    private static long[][] adjacencyMasks(BoardLayout layout)
+    {
+        long[][] masks = new long[layout.numCells][];
+        for (int cell = 0; cell < layout.numCells; cell++) masks[cell] = layout.adjacencyMask(cell);
+        return masks;
+    }
+
+    private static long[][] frozenMasks(BoardLayout layout)
+    {
+        long[][] masks = new long[layout.numCells + 1][];
+        for (int start = 0; start <= layout.numCells; start++) masks[start] = layout.frozenMask(start);
+        return masks;
+    }
+
+    private static final class OneWord extends BitBoard
+    {
+        private final long[] adj0, frozen0;
+        private long w0;
+
+        OneWord(BoardLayout layout, long[] state)
+        {
+            super(layout);
+            this.adj0 = column(adjacencyMasks(layout), 0);
+            this.frozen0 = column(frozenMasks(layout), 0);
+            this.w0 = state[0];
+        }
+
+        private OneWord(OneWord other)
+        {
+            super(other.layout);
+            this.adj0 = other.adj0;
+            this.frozen0 = other.frozen0;
+            this.w0 = other.w0;
+        }
+
+        @Override
+        public void click(int cell)
+        {
+            w0 ^= adj0[cell];
+        }
+
+        @Override
+        public boolean frozenLit(int start)
+        {
+            return (w0 & frozen0[start]) != 0;
+        }
+
+        @Override
+        public boolean clearedBy(int cell)
+        {
+            return w0 == adj0[cell];
+        }
+
+        @Override
+        public BitBoard copy()
+        {
+            return new OneWord(this);
+        }
+    }
+
+    private static final class TwoWords extends BitBoard
+    {
+        private final long[] adj0, adj1, frozen0, frozen1;
+        private long w0, w1;
+
+        TwoWords(BoardLayout layout, long[] state)
+        {
+            super(layout);
+            long[][] adjacency = adjacencyMasks(layout), frozen = frozenMasks(layout);
+            this.adj0 = column(adjacency, 0);
+            this.adj1 = column(adjacency, 1);
+            this.frozen0 = column(frozen, 0);
+            this.frozen1 = column(frozen, 1);
+            this.w0 = state[0];
+            this.w1 = state[1];
+        }
+
+        private TwoWords(TwoWords other)
+        {
+            super(other.layout);
+            this.adj0 = other.adj0;
+            this.adj1 = other.adj1;
+            this.frozen0 = other.frozen0;
+            this.frozen1 = other.frozen1;
+            this.w0 = other.w0;
+            this.w1 = other.w1;
+        }
+
+        @Override
+        public void click(int cell)
+        {
+            w0 ^= adj0[cell];
+            w1 ^= adj1[cell];
+        }
+
+        @Override
+        public boolean frozenLit(int start)
+        {
+            return ((w0 & frozen0[start]) | (w1 & frozen1[start])) != 0;
+        }
+
+        @Override
+        public boolean clearedBy(int cell)
+        {
+            return ((w0 ^ adj0[cell]) | (w1 ^ adj1[cell])) == 0;
+        }
+
+        @Override
+        public BitBoard copy()
+        {
+            return new TwoWords(this);
+        }
+    }
+
+    // Also used for 3 words, the fourth one just stays 0
+    private static final class FourWords extends BitBoard
+    {
+        private final long[] adj0, adj1, adj2, adj3, frozen0, frozen1, frozen2, frozen3;
+        private long w0, w1, w2, w3;
+
+        FourWords(BoardLayout layout, long[] state)
+        {
+            super(layout);
+            long[][] adjacency = adjacencyMasks(layout), frozen = frozenMasks(layout);
+            this.adj0 = column(adjacency, 0);
+            this.adj1 = column(adjacency, 1);
+            this.adj2 = column(adjacency, 2);
+            this.adj3 = column(adjacency, 3);
+            this.frozen0 = column(frozen, 0);
+            this.frozen1 = column(frozen, 1);
+            this.frozen2 = column(frozen, 2);
+            this.frozen3 = column(frozen, 3);
+            this.w0 = state[0];
+            this.w1 = state[1];
+            this.w2 = state[2];
+            this.w3 = (state.length > 3) ? state[3] : 0L;
+        }
+
+        private FourWords(FourWords other)
+        {
+            super(other.layout);
+            this.adj0 = other.adj0;
+            this.adj1 = other.adj1;
+            this.adj2 = other.adj2;
+            this.adj3 = other.adj3;
+            this.frozen0 = other.frozen0;
+            this.frozen1 = other.frozen1;
+            this.frozen2 = other.frozen2;
+            this.frozen3 = other.frozen3;
+            this.w0 = other.w0;
+            this.w1 = other.w1;
+            this.w2 = other.w2;
+            this.w3 = other.w3;
+        }
+
+        @Override
+        public void click(int cell)
+        {
+            w0 ^= adj0[cell];
+            w1 ^= adj1[cell];
+            w2 ^= adj2[cell];
+            w3 ^= adj3[cell];
+        }
+
+        @Override
+        public boolean frozenLit(int start)
+        {
+            return ((w0 & frozen0[start]) | (w1 & frozen1[start]) | (w2 & frozen2[start]) | (w3 & frozen3[start])) != 0;
+        }
+
+        @Override
+        public boolean clearedBy(int cell)
+        {
+            return ((w0 ^ adj0[cell]) | (w1 ^ adj1[cell]) | (w2 ^ adj2[cell]) | (w3 ^ adj3[cell])) == 0;
+        }
+
+        @Override
+        public BitBoard copy()
+        {
+            return new FourWords(this);
+        }
+    }
+
+    private static final class ManyWords extends BitBoard
+    {
+        private final int words;
+        private final long[] adjacency, frozen; // Flattened: [cell * words + w] and [start * words + w]
+        private final long[] state;
+
+        ManyWords(BoardLayout layout, long[] state)
+        {
+            super(layout);
+            this.words = layout.getWords();
+            this.adjacency = flatten(adjacencyMasks(layout), words);
+            this.frozen = flatten(frozenMasks(layout), words);
+            this.state = state.clone();
+        }
+
+        private ManyWords(ManyWords other)
+        {
+            super(other.layout);
+            this.words = other.words;
+            this.adjacency = other.adjacency;
+            this.frozen = other.frozen;
+            this.state = other.state.clone();
+        }
+
+        private static long[] flatten(long[][] masks, int words)
+        {
+            long[] flat = new long[masks.length * words];
+            for (int i = 0; i < masks.length; i++) System.arraycopy(masks[i], 0, flat, i * words, words);
+            return flat;
+        }
+
+        @Override
+        public void click(int cell)
+        {
+            int base = cell * words;
+            for (int w = 0; w < words; w++) state[w] ^= adjacency[base + w];
+        }
+
+        @Override
+        public boolean frozenLit(int start)
+        {
+            int base = start * words;
+            long lit = 0L;
+            for (int w = 0; w < words; w++) lit |= state[w] & frozen[base + w];
+            return lit != 0;
+        }
+
+        @Override
+        public boolean clearedBy(int cell)
+        {
+            int base = cell * words;
+            long diff = 0L;
+            for (int w = 0; w < words; w++) diff |= state[w] ^ adjacency[base + w];
+            return diff == 0;
+        }
+
+        @Override
+        public BitBoard copy()
+        {
+            return new ManyWords(this);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.mrgarbagegamer;
+
+import java.util.Arrays;
+
+/**
+ * Shape of a hex puzzle board of any size: rows alternate between evenCols cells (even rows) and evenCols - 1 cells (odd rows,
+ * inset by half a cell), which is the layout Grid hard-codes for the 7x16 board of the original questions.
+ * Cells are numbered in Index format (row by row) and Packed int format (row * 100 + col) just like in Grid, and a board state is a
+ * bitset of getWords() longs, bit i of word i / 64 being cell i.
+ */
+public final class BoardLayout
+{
+    public static final BoardLayout STANDARD = new BoardLayout(7, 16);
+
+    public final int rows, evenCols, oddCols;
+    public final int numCells;
+    private final int words;
+    private final int[] rowOffsets;
+    private final int[][] adjacents; // Index format, ascending
+    private final long[][] adjacencyMasks; // Cells toggled by each click
+    private final int[] lastAffectingClick; // Largest click that toggles each cell
+    private final long[][] frozenMasks; // frozenMasks[start]: cells no click >= start can toggle
+
+    public BoardLayout(int rows, int evenCols)
+    {
+        if (rows < 1 || evenCols < 2 || evenCols > 100) throw new IllegalArgumentException("Unsupported board size " + rows + "x" + evenCols);
+        this.rows = rows;
+        this.evenCols = evenCols;
+        this.oddCols = evenCols - 1;
+
+        this.rowOffsets = new int[rows];
+        int cells = 0;
+        for (int row = 0; row < rows; row++)
+        {
+            rowOffsets[row] = cells;
+            cells += rowLength(row);
+        }
+        this.numCells = cells;
+        this.words = (cells + 63) >>> 6;
+
+        this.adjacents = new int[numCells][];
+        this.adjacencyMasks = new long[numCells][words];
+        this.lastAffectingClick = new int[numCells];
+        for (int cell = 0; cell < numCells; cell++)
+        {
+            adjacents[cell] = computeAdjacents(cell);
+            lastAffectingClick[cell] = -1;
+        }
+        for (int cell = 0; cell < numCells; cell++)
+        {
+            for (int adjacent : adjacents[cell])
+            {
+                adjacencyMasks[cell][adjacent >>> 6] |= 1L << adjacent;
+                lastAffectingClick[adjacent] = Math.max(lastAffectingClick[adjacent], cell);
+            }
+        }
+
+        this.frozenMasks = new long[numCells + 1][words];
+        for (int start = 0; start <= numCells; start++)
+        {
+            for (int cell = 0; cell < numCells; cell++)
+            {
+                if (lastAffectingClick[cell] < start) frozenMasks[start][cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * Parses a board size given as rows x columns of the long rows, e.g. "9x20".
+     */
+    public static BoardLayout parse(String size)
+    {
+        int x = size.toLowerCase().indexOf('x');
+        if (x == -1) throw new IllegalArgumentException("Board size must look like <rows>x<cols>, e.g. 9x20");
+        return new BoardLayout(Integer.parseInt(size.substring(0, x).trim()), Integer.parseInt(size.substring(x + 1).trim()));
+    }
+
+    // Same neighbourhood as Grid.computeAdjacents(): even rows reach columns (col - 1, col) of the rows around them, odd rows (col, col + 1)
+    private int[] computeAdjacents(int cell)
+    {
+        int packed = indexToPacked(cell);
+        int row = packed / 100, col = packed % 100;
+        int shift = (row % 2 == 0) ? -1 : 0;
+        int[][] offsets = {{-1, shift}, {-1, shift + 1}, {0, -1}, {0, 1}, {1, shift}, {1, shift + 1}};
+
+        int[] found = new int[offsets.length];
+        int count = 0;
+        for (int[] offset : offsets)
+        {
+            int r = row + offset[0], c = col + offset[1];
+            if (r < 0 || r >= rows || c < 0 || c >= rowLength(r)) continue;
+            found[count++] = rowOffsets[r] + c;
+        }
+        return Arrays.copyOf(found, count); // Already ascending: row above, own row, row below
+    }
+
+    public int rowLength(int row)
+    {
+        return (row % 2 == 0) ? evenCols : oddCols;
+    }
+
+    /**
+     * Longs per board bitset.
+     */
+    public int getWords()
+    {
+        return words;
+    }
+
+    public int rowOffset(int row)
+    {
+        return rowOffsets[row];
+    }
+
+    public int packedToIndex(int packed)
+    {
+        int row = packed / 100, col = packed % 100;
+        if (packed < 0 || row >= rows || col >= rowLength(row)) throw new IllegalArgumentException("Cell " + packed + " is not on a " + this + " board");
+        return rowOffsets[row] + col;
+    }
+
+    public int indexToPacked(int index)
+    {
+        if (index < 0 || index >= numCells) throw new IllegalArgumentException("Invalid index: " + index);
+        int row = rows - 1;
+        while (rowOffsets[row] > index) row--;
+        return row * 100 + (index - rowOffsets[row]);
+    }
+
+    public int[] getAdjacents(int cell)
+    {
+        return adjacents[cell].clone();
+    }
+
+    /**
+     * Cells toggled by clicking the given cell, as a getWords()-long bitset. Shared, do not modify.
+     */
+    long[] adjacencyMask(int cell)
+    {
+        return adjacencyMasks[cell];
+    }
+
+    /**
+     * Cells that no click at or after start can toggle, as a getWords()-long bitset. Shared, do not modify.
+     */
+    long[] frozenMask(int start)
+    {
+        return frozenMasks[start];
+    }
+
+    public int getLastAffectingClick(int cell)
+    {
+        return lastAffectingClick[cell];
+    }
+
+    /**
+     * Builds a board state with the given cells (Packed int format) lit.
+     */
+    public long[] stateOf(int[] litCells)
+    {
+        long[] state = new long[words];
+        for (int packed : litCells)
+        {
+            int cell = packedToIndex(packed);
+            state[cell >>> 6] ^= 1L << cell;
+        }
+        return state;
+    }
+
+    public boolean isStandard()
+    {
+        return rows == STANDARD.rows && evenCols == STANDARD.evenCols;
+    }
+
+    @Override
+    public String toString()
+    {
+        return rows + "x" + evenCols;
+    }
+}
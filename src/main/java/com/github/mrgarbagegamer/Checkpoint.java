@@ -0,0 +1,208 @@
+package com.github.mrgarbagegamer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Progress of a brute-force search that survives restarts.
+ * The unit of work is a two-click prefix (first click, second click), ranked as first * NUM_CELLS + second, and progress is kept as
+ * bitmaps over those ranks. A prefix is complete once its generator has moved past it and no batch holding its leaves is still
+ * waiting for a consumer: generators retain a prefix for every batch its leaves go into, consumers release the batch's prefixes after
+ * evaluating it. Generators and consumers only flip bits and counters; a background thread turns them into the on-disk bitmap,
+ * written to a temporary file, fsynced and moved over the previous checkpoint.
+ */
+public final class Checkpoint
+{
+    private static final Logger logger = LogManager.getLogger(Checkpoint.class);
+
+    private static final long MAGIC = 0x504443434b505431L; // "PDCCKPT1"
+    private static final int HEADER_BYTES = 24; // magic, question, numClicks, number of prefixes
+
+    public static final int NUM_PREFIXES = Grid.NUM_CELLS * Grid.NUM_CELLS;
+    private static final int WORDS = (NUM_PREFIXES + 63) >>> 6;
+
+    private final Path file;
+    private final int questionNumber;
+    private final int numClicks;
+    private final long[] resumed; // Prefixes already complete when this run started, read-only
+    private final AtomicLongArray generated = new AtomicLongArray(WORDS); // Prefixes whose leaves have all been generated in this run
+    private final AtomicIntegerArray outstanding = new AtomicIntegerArray(NUM_PREFIXES); // Batches with leaves of each prefix not yet evaluated
+
+    private Checkpoint(Path file, int questionNumber, int numClicks, long[] resumed)
+    {
+        this.file = file;
+        this.questionNumber = questionNumber;
+        this.numClicks = numClicks;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Opens a checkpoint file for writing.
+     * @param resume Load the progress stored in the file (if it exists) so that finished prefixes are skipped.
+     */
+    public static Checkpoint open(Path file, int questionNumber, int numClicks, boolean resume) throws IOException
+    {
+        long[] resumed = new long[WORDS];
+        if (resume && Files.exists(file))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() != HEADER_BYTES + WORDS * 8 || buffer.getLong() != MAGIC)
+            {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            int fileQuestion = buffer.getInt(), fileClicks = buffer.getInt(), filePrefixes = buffer.getInt();
+            buffer.getInt(); // padding
+            if (fileQuestion != questionNumber || fileClicks != numClicks || filePrefixes != NUM_PREFIXES)
+            {
+                throw new IOException("Checkpoint " + file + " is for Q" + fileQuestion + " in " + fileClicks + " clicks, not Q" + questionNumber + " in " + numClicks);
+            }
+            for (int i = 0; i < WORDS; i++)
+            {
+                resumed[i] = buffer.getLong();
+            }
+        }
+
+        Checkpoint checkpoint = new Checkpoint(file, questionNumber, numClicks, resumed);
+        if (resume) logger.info("Resuming from {}: {} of {} two-click prefixes already done", file, checkpoint.countDone(), NUM_PREFIXES);
+        return checkpoint;
+    }
+
+    public static int prefixOf(int firstClick, int secondClick)
+    {
+        return firstClick * Grid.NUM_CELLS + secondClick;
+    }
+
+    /**
+     * True if the prefix was finished by a previous run.
+     */
+    public boolean isDone(int prefix)
+    {
+        return (resumed[prefix >>> 6] & (1L << prefix)) != 0;
+    }
+
+    /**
+     * True if every prefix starting with this click was finished by a previous run.
+     */
+    public boolean isFirstClickDone(int firstClick)
+    {
+        for (int second = firstClick + 1; second < Grid.NUM_CELLS; second++)
+        {
+            if (!isDone(prefixOf(firstClick, second))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called by a generator when it puts the first leaf of a prefix into a batch.
+     */
+    public void retain(int prefix)
+    {
+        outstanding.incrementAndGet(prefix);
+    }
+
+    /**
+     * Called by a consumer once it has evaluated every combination of a batch.
+     */
+    public void release(WorkBatch batch)
+    {
+        for (int i = 0, count = batch.getPrefixCount(); i < count; i++)
+        {
+            outstanding.decrementAndGet(batch.getPrefix(i));
+        }
+    }
+
+    /**
+     * Called by a generator once it will not produce any more leaves for the prefix.
+     */
+    public void markGenerated(int prefix)
+    {
+        generated.getAndUpdate(prefix >>> 6, word -> word | (1L << prefix));
+    }
+
+    public void markFirstClickGenerated(int firstClick)
+    {
+        for (int second = firstClick + 1; second < Grid.NUM_CELLS; second++)
+        {
+            markGenerated(prefixOf(firstClick, second));
+        }
+    }
+
+    // Done now: finished by an earlier run, or generated in this one with nothing left in flight
+    private long[] snapshot()
+    {
+        long[] done = resumed.clone();
+        for (int w = 0; w < WORDS; w++)
+        {
+            for (long bits = generated.get(w); bits != 0; bits &= bits - 1)
+            {
+                int prefix = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (outstanding.get(prefix) == 0) done[w] |= 1L << prefix;
+            }
+        }
+        return done;
+    }
+
+    public int countDone()
+    {
+        int count = 0;
+        for (long word : snapshot()) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Writes the current progress and forces it to disk.
+     */
+    public synchronized void write() throws IOException
+    {
+        long[] done = snapshot();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + WORDS * 8);
+        buffer.putLong(MAGIC).putInt(questionNumber).putInt(numClicks).putInt(NUM_PREFIXES).putInt(0);
+        for (long word : done) buffer.putLong(word);
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Starts the daemon thread that writes the checkpoint every intervalMillis.
+     */
+    public Thread startWriter(long intervalMillis)
+    {
+        Thread writer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                try
+                {
+                    Thread.sleep(intervalMillis);
+                    write();
+                    logger.debug("Checkpointed {} of {} two-click prefixes to {}", countDone(), NUM_PREFIXES, file);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e)
+                {
+                    logger.error("Could not write checkpoint {}", file, e);
+                }
+            }
+        }, "Checkpointer");
+        writer.setDaemon(true);
+        writer.start();
+        return writer;
+    }
+}
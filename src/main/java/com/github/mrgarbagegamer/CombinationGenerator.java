@@ -12,16 +12,27 @@ public class CombinationGenerator extends Thread
 {
     private static final Logger logger = LogManager.getLogger(CombinationGenerator.class);
 
-    private static final int BATCH_SIZE = 2000; // Tune as needed
+    static final int BATCH_SIZE = 2000; // Tune as needed
     private static final int FLUSH_THRESHOLD = (int) (BATCH_SIZE / 2);
     private static final int POOL_SIZE = 4096; // Tune as needed
+    private static final int SPLIT_CHECK_INTERVAL = 64; // DFS expansions between offers to a StackSplitter
+    private static final int METRICS_INTERVAL = 1 << 12; // DFS expansions between metric publishes
 
     private static int[] TRUE_CELLS = null;
 
     private final CombinationQueueArray queueArray;
     private final int numClicks;
     private final int firstClickStart, firstClickEnd;
-    
+    private final RankRange rankRange; // Non-null when this generator searches a rank range instead of whole first clicks
+    private final Grid fusedGrid; // Non-null in fused mode, where leaves are tested by the generator itself
+    private long candidatesGenerated = 0;
+    private long combinationsSkipped = 0; // Leaves under pruned or skipped states, so that progress adds up to the whole search
+    private long statesPruned = 0, parityRejected = 0, symmetryRejected = 0, combinationsShipped = 0, combinationsTested = 0; // Published to counters
+    private final SolverMetrics.Counters counters; // Shared with every other generator this thread runs
+    private final long[] published = new long[SolverMetrics.Counter.values().length]; // What this generator has added to counters so far
+    private int currentPrefix = -1; // Two-click checkpoint prefix being expanded, see Checkpoint
+    private WorkBatch batch = null; // Partially filled batch carried between search() calls
+    private final long[] prefixImages = new long[6]; // Images of the current leaf parent under up to three mirrors, see Symmetry
 
     // Generator-local pools
     private final ArrayPool indicesPool = new ArrayPool(POOL_SIZE, 64); // Pool for indices arrays
@@ -30,20 +41,47 @@ public class CombinationGenerator extends Thread
     private final MpmcArrayQueue<WorkBatch> workBatchPool;
 
     public CombinationGenerator(String threadName, CombinationQueueArray queueArray, int numClicks, int firstClickStart, int firstClickEnd, int[] trueCells) 
+    {
+        this(threadName, queueArray, numClicks, firstClickStart, firstClickEnd, trueCells, null);
+    }
+
+    /**
+     * @param fusedGrid A private copy of the puzzle grid to run in fused mode, or null to ship leaves to the consumers.
+     */
+    public CombinationGenerator(String threadName, CombinationQueueArray queueArray, int numClicks, int firstClickStart, int firstClickEnd, int[] trueCells, Grid fusedGrid) 
+    {
+        this(threadName, queueArray, numClicks, firstClickStart, firstClickEnd, null, trueCells, fusedGrid);
+    }
+
+    /**
+     * Searches the combinations of ranks [rankRange.start, rankRange.end), see CombinationRanks.
+     * @param fusedGrid A private copy of the puzzle grid to run in fused mode, or null to ship leaves to the consumers.
+     */
+    public CombinationGenerator(String threadName, CombinationQueueArray queueArray, int numClicks, RankRange rankRange, int[] trueCells, Grid fusedGrid) 
+    {
+        this(threadName, queueArray, numClicks, CombinationRanks.unrank(rankRange.start, numClicks)[0],
+             CombinationRanks.unrank(rankRange.end - 1, numClicks)[0] + 1, rankRange, trueCells, fusedGrid);
+    }
+
+    private CombinationGenerator(String threadName, CombinationQueueArray queueArray, int numClicks, int firstClickStart, int firstClickEnd, RankRange rankRange, int[] trueCells, Grid fusedGrid) 
     {
         super(threadName);
         this.queueArray = queueArray;
         this.numClicks = numClicks;
         this.firstClickStart = firstClickStart;
         this.firstClickEnd = firstClickEnd;
+        this.rankRange = rankRange;
+        this.fusedGrid = fusedGrid;
 
         // Lazy static initialization of true cells
         if (TRUE_CELLS == null)
         {
             TRUE_CELLS = trueCells;
         }
+        if (fusedGrid != null) ensureTrueCellMasks(TRUE_CELLS);
         
         this.workBatchPool = queueArray.getWorkBatchPool();
+        this.counters = queueArray.getMetrics().countersForCurrentThread(); // Generators run on the thread that creates them
     }
 
     @Override
@@ -60,13 +98,16 @@ public class CombinationGenerator extends Thread
     private void recycleIndices(int[] arr) {
         if (indicesPool.size() < POOL_SIZE) indicesPool.put(arr);
     }
-    private CombinationState getState(int start, int size, int[] indices, long adjacencyMask) {
+    private CombinationState getState(int start, int size, int[] indices, CombinationState parent) {
         CombinationState s = statePool.pollFirst();
-        if (s == null) return new CombinationState(start, size, indices, -1);
+        if (s == null) s = new CombinationState(start, size, indices, -1);
         s.start = start;
+        s.end = Grid.NUM_CELLS;
         s.size = size;
         s.indices = indices;
-        s.adjacencies = adjacencyMask;
+        s.adjacencies = parent.adjacencies;
+        s.boardLo = parent.boardLo;
+        s.boardHi = parent.boardHi;
         return s;
     }
     private void recycleState(CombinationState s) {
@@ -81,133 +122,340 @@ public class CombinationGenerator extends Thread
     }
 
     private void generateCombinationsIterative(int k)
+    {
+        SolverEvents.PrefixRange event = new SolverEvents.PrefixRange();
+        event.begin();
+        Deque<CombinationState> stack = (rankRange != null) ? CombinationRanks.seedStack(rankRange, k) : seedStack(firstClickStart, firstClickEnd, k);
+        search(stack, null);
+        flushRemaining();
+        event.start = firstClickStart;
+        event.end = firstClickEnd;
+        event.candidates = candidatesGenerated;
+        event.commit();
+        queueArray.addCandidates(candidatesGenerated);
+        if (rankRange != null)
+        {
+            logger.info("Thread {} finished generating combinations for ranks [{}-{}), first clicks [{}-{}) ({} candidates)", getName(), rankRange.start, rankRange.end, firstClickStart, firstClickEnd, candidatesGenerated);
+        }
+        else
+        {
+            logger.info("Thread {} finished generating combinations for prefix range [{}-{}) ({} candidates)", getName(), firstClickStart, firstClickEnd, candidatesGenerated);
+        }
+    }
+
+    /**
+     * Hook offered the DFS stack every SPLIT_CHECK_INTERVAL expansions, so part of the remaining search can be handed to another worker.
+     */
+    @FunctionalInterface
+    interface StackSplitter
+    {
+        void offer(Deque<CombinationState> stack);
+    }
+
+    /**
+     * Builds the root DFS stack for first clicks [start, end), with the smallest first click (largest subtree) at the bottom.
+     */
+    static Deque<CombinationState> seedStack(int start, int end, int k)
     {
         Deque<CombinationState> stack = new ArrayDeque<>();
-        for (int i = firstClickStart; i < firstClickEnd; i++) 
+        for (int i = start; i < end; i++) 
         {
-            int[] indices = getIndices(k);
+            int[] indices = new int[k];
             indices[0] = i;
-            stack.push(getState(i + 1, 1, indices, -1));
+            stack.push(new CombinationState(i + 1, 1, indices, -1));
         }
+        return stack;
+    }
 
-        WorkBatch batch = getWorkBatch();
-        int[] buffer = new int[k];
+    /**
+     * Runs the DFS until the stack is empty or a solution is found. The current batch is kept between calls, so one generator
+     * can serve many stacks before calling flushRemaining().
+     * @param splitter Optional hook that may move part of the stack elsewhere, or null.
+     */
+    void search(Deque<CombinationState> stack, StackSplitter splitter)
+    {
+        int k = numClicks;
+        WorkBatch batch = (this.batch != null) ? this.batch : getWorkBatch();
+        Checkpoint checkpoint = queueArray.getCheckpoint();
+        Shard shard = queueArray.getShard();
+        Symmetry symmetry = queueArray.getSymmetry();
+        int sinceSplitCheck = 0;
+        int sincePublish = 0;
 
         while (!stack.isEmpty() && !queueArray.solutionFound) 
         {
+            if (splitter != null && ++sinceSplitCheck == SPLIT_CHECK_INTERVAL)
+            {
+                sinceSplitCheck = 0;
+                splitter.offer(stack);
+            }
+
+            if (++sincePublish == METRICS_INTERVAL)
+            {
+                sincePublish = 0;
+                publishMetrics();
+            }
+
             CombinationState state = stack.pop();
             int start = state.start;
             int size = state.size;
             int[] indices = state.indices;
 
+            int prefix = -1;
+            if ((checkpoint != null || shard != null) && size >= 2)
+            {
+                prefix = Checkpoint.prefixOf(indices[0], indices[1]);
+                if (checkpoint != null && prefix != currentPrefix)
+                {
+                    // Each two-click prefix's subtree is popped contiguously, so seeing a new prefix means the previous one is fully generated
+                    if (currentPrefix != -1) checkpoint.markGenerated(currentPrefix);
+                    currentPrefix = prefix;
+                }
+                if ((shard != null && !shard.owns(prefix)) || (checkpoint != null && checkpoint.isDone(prefix)))
+                {
+                    // Another shard's work, or finished by an earlier run
+                    combinationsSkipped += CombinationRanks.subtreeSize(start, state.end, k - size);
+                    recycleIndices(indices);
+                    recycleState(state);
+                    continue;
+                }
+            }
+
             if (size >= 2 && !canPotentiallySatisfyConstraints(state)) 
             {
                 // If we can't potentially satisfy constraints, skip this state
+                statesPruned++;
+                combinationsSkipped += CombinationRanks.subtreeSize(start, state.end, k - size);
+                recycleIndices(indices);
+                recycleState(state);
+                continue;
+            }
+
+            if (symmetry != null && !symmetry.canBeCanonical(indices, size))
+            {
+                // Every combination below is a mirror image of a smaller one, which is searched instead
+                statesPruned++;
+                combinationsSkipped += CombinationRanks.subtreeSize(start, state.end, k - size);
                 recycleIndices(indices);
                 recycleState(state);
                 continue;
             }
 
-            for (int i = Grid.NUM_CELLS - 1; i >= start; i--) 
+            // Leaves are shipped in Bitmask format, so build the prefix's click mask once for all of this state's leaves
+            long prefixLo = 0L, prefixHi = 0L;
+            if (size + 1 == k)
             {
-                int[] newIndices = getIndices(k);
-                System.arraycopy(indices, 0, newIndices, 0, size);
-                newIndices[size] = i;
+                for (int j = 0; j < size; j++)
+                {
+                    int click = indices[j];
+                    if (click < 64) prefixLo |= 1L << click; else prefixHi |= 1L << (click - 64);
+                }
+                if (symmetry != null) symmetry.prefixImages(indices, size, prefixImages);
+            }
 
+            for (int i = state.end - 1; i >= start; i--) 
+            {
                 if (size + 1 < k) 
                 {
-                    stack.push(getState(i + 1, size + 1, newIndices, state.adjacencies));
+                    int[] newIndices = getIndices(k);
+                    System.arraycopy(indices, 0, newIndices, 0, size);
+                    newIndices[size] = i;
+                    stack.push(getState(i + 1, size + 1, newIndices, state));
                 }
                 else if (size + 1 == k) 
                 {
-                    for (int j = 0; j < k; j++) buffer[j] = newIndices[j];
-                    if (TRUE_CELLS != null && TRUE_CELLS.length > 0 && !quickOddAdjacency(buffer, TRUE_CELLS[0])) 
+                    candidatesGenerated++;
+                    long clickLo = prefixLo, clickHi = prefixHi;
+                    if (i < 64) clickLo |= 1L << i; else clickHi |= 1L << (i - 64);
+                    if (symmetry != null && !symmetry.isCanonical(clickLo, clickHi, prefixImages, i))
+                    {
+                        symmetryRejected++;
+                        continue;
+                    }
+
+                    if (fusedGrid != null)
+                    {
+                        // Fused mode: evaluate the leaf right here instead of shipping it
+                        if (testLeaf(state, i)) break;
+                        continue;
+                    }
+
+                    if (TRUE_CELLS != null && TRUE_CELLS.length > 0 && !quickOddAdjacency(clickLo, clickHi, TRUE_CELLS[0])) 
                     {
                         // If we have true cells and the first adjacent is not satisfied, skip this combination
-                        recycleIndices(newIndices);
-                        recycleState(state);
-                        continue; // Skip this combination
+                        parityRejected++;
+                        continue;
                     }
                     
-                    if (!batch.add(buffer))
+                    if (!batch.add(clickLo, clickHi))
                     {
-                        if (flushBatch(batch)) 
-                        {
-                            batch = getWorkBatch();
-                            batch.add(buffer);
-                        }
+                        // Batch full: hand it off, waiting for room rather than dropping the leaf
+                        if (!flushUntilAccepted(batch)) break; // Solution found
+                        batch = getWorkBatch();
+                        batch.add(clickLo, clickHi);
                     }
-
-                    recycleIndices(newIndices);
+                    if (checkpoint != null && batch.notePrefix(prefix)) checkpoint.retain(prefix);
                 }
             }
             recycleIndices(indices);
             recycleState(state);
         }
+        this.batch = batch;
+        publishMetrics();
+
+        if (checkpoint != null && currentPrefix != -1 && stack.isEmpty() && !queueArray.solutionFound)
+        {
+            checkpoint.markGenerated(currentPrefix);
+            currentPrefix = -1;
+        }
+    }
+
+    /**
+     * Ships whatever is left in the current batch. Must be called once the generator has no more stacks to search.
+     */
+    void flushRemaining()
+    {
+        if (batch == null) return;
+
         // Flush any remaining combinations in the batch
-        while (!flushBatch(batch));
-        logger.info("Thread {} finished generating combinations for prefix range [{}-{})", getName(), firstClickStart, firstClickEnd);
+        if (batch.isEmpty())
+        {
+            workBatchPool.offer(batch);
+        }
+        else
+        {
+            flushUntilAccepted(batch);
+        }
+        batch = null;
+        publishMetrics();
+    }
+
+    private void publishMetrics()
+    {
+        publish(SolverMetrics.Counter.Generated, candidatesGenerated);
+        publish(SolverMetrics.Counter.Pruned, statesPruned);
+        publish(SolverMetrics.Counter.Skipped, combinationsSkipped);
+        publish(SolverMetrics.Counter.ParityRejected, parityRejected);
+        publish(SolverMetrics.Counter.SymmetryRejected, symmetryRejected);
+        publish(SolverMetrics.Counter.Shipped, combinationsShipped);
+        publish(SolverMetrics.Counter.Tested, combinationsTested);
+    }
+
+    private void publish(SolverMetrics.Counter counter, long total)
+    {
+        counters.add(counter, total - published[counter.ordinal()]);
+        published[counter.ordinal()] = total;
+    }
+
+    long getCandidatesGenerated()
+    {
+        return candidatesGenerated;
+    }
+
+    /**
+     * Fused-mode leaf check: the parent state already carries the parity of every true cell, so one XOR tells whether the leaf
+     * toggles each true cell an odd number of times. Only leaves that pass are replayed on the grid to confirm the solve.
+     * @return true if this leaf solved the puzzle and the search should stop (never in all-solutions mode).
+     */
+    private boolean testLeaf(CombinationState state, int lastClick)
+    {
+        int size = state.size;
+        int[] prefix = state.indices;
+
+        long parity;
+        if (size >= 2)
+        {
+            parity = state.adjacencies; // Set by canPotentiallySatisfyConstraints when the state was popped
+        }
+        else
+        {
+            parity = 0L;
+            for (int j = 0; j < size; j++) parity ^= TRUE_CELL_ADJACENCY_MASKS[prefix[j]];
+        }
+        parity ^= TRUE_CELL_ADJACENCY_MASKS[lastClick];
+
+        if (parity != TRUE_CELL_TARGET_MASK)
+        {
+            parityRejected++;
+            return false;
+        }
+        combinationsTested++;
+
+        for (int j = 0; j < size; j++) fusedGrid.click(prefix[j]);
+        fusedGrid.click(lastClick);
+        boolean solved = fusedGrid.isSolved();
+        fusedGrid.initialize(); // reset the grid for the next leaf
+
+        SolutionSink sink = queueArray.getSolutionSink();
+        if (solved && sink != null)
+        {
+            // All-solutions mode: record it and keep going
+            long lo = 0L, hi = 0L;
+            for (int j = 0; j < size; j++)
+            {
+                if (prefix[j] < 64) lo |= 1L << prefix[j]; else hi |= 1L << (prefix[j] - 64);
+            }
+            if (lastClick < 64) lo |= 1L << lastClick; else hi |= 1L << (lastClick - 64);
+            queueArray.recordSolution(lo, hi);
+            return false;
+        }
+        if (solved)
+        {
+            int[] combination = new int[size + 1];
+            System.arraycopy(prefix, 0, combination, 0, size);
+            combination[size] = lastClick;
+            logger.info("Found the solution as the following click combination: {}", new CombinationMessage(combination.clone(), Grid.ValueFormat.Index));
+            queueArray.solutionFound(getName(), combination);
+        }
+        return solved;
     }
 
     // Add these static fields for pre-computed adjacency data
     private static long[] TRUE_CELL_ADJACENCY_MASKS = null;
     // NEW: Add a field for the pre-computed suffix OR masks
     private static long[] SUFFIX_OR_MASKS = null;
-    private static final boolean[][] CLICK_ADJACENCY_MATRIX = initClickAdjacencyMatrix(); // Stored in index format
+    private static long TRUE_CELL_TARGET_MASK = 0L; // One bit per true cell, all of which need odd parity
+    private static long INITIAL_BOARD_LO = 0L, INITIAL_BOARD_HI = 0L; // The puzzle's lit cells, in Bitmask format
+    private static final long[] CLICK_MASKS_LO = new long[Grid.NUM_CELLS], CLICK_MASKS_HI = new long[Grid.NUM_CELLS]; // Cells toggled by each click
+    // FROZEN_LO/HI[start]: cells no click >= start can toggle anymore, so a prefix whose next click is start must already have them off
+    private static final long[] FROZEN_LO = new long[Grid.NUM_CELLS + 1], FROZEN_HI = new long[Grid.NUM_CELLS + 1];
 
-    private static boolean[][] initClickAdjacencyMatrix() 
+    static
     {
-        boolean[][] matrix = new boolean[Grid.NUM_CELLS][Grid.NUM_CELLS];
-        for (int i = 0; i < Grid.NUM_CELLS; i++) 
+        for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
         {
-            int[] adjacents = Grid.findAdjacents(i, Grid.ValueFormat.Index);
-            if (adjacents != null) 
-            {
-                for (int adj : adjacents) 
-                {
-                    if (adj < Grid.NUM_CELLS) matrix[i][adj] = true;
-                }
-            }
+            CLICK_MASKS_LO[cell] = Grid.LAYOUT.adjacencyMask(cell)[0];
+            CLICK_MASKS_HI[cell] = Grid.LAYOUT.adjacencyMask(cell)[1];
+        }
+        for (int start = 0; start <= Grid.NUM_CELLS; start++)
+        {
+            FROZEN_LO[start] = Grid.LAYOUT.frozenMask(start)[0];
+            FROZEN_HI[start] = Grid.LAYOUT.frozenMask(start)[1];
         }
-        return matrix;
+    }
+
+    /**
+     * Uses tables built (or loaded from a cache) up front instead of deriving them from the first generator's true cells.
+     * Must be called before any generator is created.
+     */
+    static synchronized void installTables(PuzzleTables tables)
+    {
+        TRUE_CELLS = tables.trueCells;
+        TRUE_CELL_TARGET_MASK = (1L << tables.trueCells.length) - 1;
+        INITIAL_BOARD_LO = tables.board[0];
+        INITIAL_BOARD_HI = tables.board[1];
+        SUFFIX_OR_MASKS = tables.suffixMasks;
+        TRUE_CELL_ADJACENCY_MASKS = tables.clickMasks; // Last, since the unsynchronized check in ensureTrueCellMasks() reads it
     }
 
     // Lazy initialization of true cell masks when first needed
     private static void ensureTrueCellMasks(int[] trueCells) 
     {
-        if ((TRUE_CELL_ADJACENCY_MASKS == null | SUFFIX_OR_MASKS == null) && trueCells != null) 
+        if (TRUE_CELL_ADJACENCY_MASKS == null && trueCells != null) 
         {
             synchronized (CombinationGenerator.class) 
             {
-                if (TRUE_CELL_ADJACENCY_MASKS == null) 
-                {
-                    long[] masks = new long[Grid.NUM_CELLS]; // Create an array to store masks for each click cell
-                    
-                    for (int clickCell = 0; clickCell < Grid.NUM_CELLS; clickCell++) // For each cell in the grid
-                    {
-                        long mask = 0L; // Create a mask with all true cells set to 0
-                        for (int i = 0; i < trueCells.length; i++) // For each true cell
-                        {
-                            if (CLICK_ADJACENCY_MATRIX[trueCells[i]][clickCell]) // If the true cell is adjacent to the click cell
-                            {
-                                mask |= (1L << i); // Add this true cell to the mask by OR-ing with the bit at position i
-                            }
-                        }
-                        masks[clickCell] = mask; // Store the mask for this click cell in the long array.
-                    }
-                    
-                    TRUE_CELL_ADJACENCY_MASKS = masks; // Assign the masks to the static field
-                }
-                if (SUFFIX_OR_MASKS == null) 
-                {
-                    // NEW: Pre-compute the suffix OR masks after the main masks are ready
-                    long[] suffixMasks = new long[Grid.NUM_CELLS + 1]; // +1 for sentinel
-                    for (int i = Grid.NUM_CELLS - 1; i >= 0; i--)
-                    {
-                        suffixMasks[i] = suffixMasks[i + 1] | TRUE_CELL_ADJACENCY_MASKS[i];
-                    }
-                    SUFFIX_OR_MASKS = suffixMasks;
-                }
+                if (TRUE_CELL_ADJACENCY_MASKS == null) installTables(PuzzleTables.build(Grid.indicesToBitmask(trueCells)));
             }
         }
     }
@@ -215,8 +463,11 @@ public class CombinationGenerator extends Thread
     /**
      * Ultra-fast constraint checking using pre-computed bitmasks.
      * Uses incremental state tracking to avoid recomputing XORs.
+     * Besides the true-cell parities, the state carries the whole board after its clicks: every later click is larger than the
+     * last one, so a cell whose neighbours all come before that point is frozen, and a frozen cell that is still lit (true or not)
+     * can never be switched off.
      */
-    private boolean canPotentiallySatisfyConstraints(CombinationState state)
+    boolean canPotentiallySatisfyConstraints(CombinationState state)
     {
         if (TRUE_CELLS == null || TRUE_CELLS.length == 0) return true;
         
@@ -227,24 +478,36 @@ public class CombinationGenerator extends Thread
         ensureTrueCellMasks(TRUE_CELLS);
         
         // Use cached adjacency state from parent if available
-        long currentAdjacencies;
+        long currentAdjacencies, boardLo, boardHi;
         if (state.adjacencies != -1)
         {
             // Incrementally update from parent's state
-            currentAdjacencies = state.adjacencies ^ TRUE_CELL_ADJACENCY_MASKS[prefix[prefixLength - 1]];
+            int lastClick = prefix[prefixLength - 1];
+            currentAdjacencies = state.adjacencies ^ TRUE_CELL_ADJACENCY_MASKS[lastClick];
+            boardLo = state.boardLo ^ CLICK_MASKS_LO[lastClick];
+            boardHi = state.boardHi ^ CLICK_MASKS_HI[lastClick];
         }
         else
         {
             // Compute from scratch (only for root tasks)
             currentAdjacencies = 0L;
+            boardLo = INITIAL_BOARD_LO;
+            boardHi = INITIAL_BOARD_HI;
             for (int j = 0; j < prefixLength; j++)
             {
                 currentAdjacencies ^= TRUE_CELL_ADJACENCY_MASKS[prefix[j]];
+                boardLo ^= CLICK_MASKS_LO[prefix[j]];
+                boardHi ^= CLICK_MASKS_HI[prefix[j]];
             }
         }
         
         // Cache for child tasks
         state.adjacencies = currentAdjacencies;
+        state.boardLo = boardLo;
+        state.boardHi = boardHi;
+
+        int startIdx = (prefixLength == 0) ? 0 : (prefix[prefixLength - 1] + 1);
+        if (((boardLo & FROZEN_LO[startIdx]) | (boardHi & FROZEN_HI[startIdx])) != 0) return false; // A frozen cell is lit
         
         // Check what we need to achieve: all bits should be 1 (odd adjacency for all true cells)
         long targetMask = (1L << TRUE_CELLS.length) - 1;
@@ -254,34 +517,93 @@ public class CombinationGenerator extends Thread
         if (needed == 0L) return true;
         
         // Use pre-computed suffix masks
-
-        int startIdx = (prefixLength == 0) ? 0 : (prefix[prefixLength - 1] + 1);
         long availableAdjacencies = SUFFIX_OR_MASKS[startIdx];
         
         // Check if available clicks can satisfy all needed adjacencies
         return (availableAdjacencies & needed) == needed; // If at least one click can satisfy each needed adjacency, return true
     }
     
+    /**
+     * Retries flushBatch() until a queue accepts the batch.
+     * @return false if a solution was found first (nobody drains the queues after that).
+     */
+    private boolean flushUntilAccepted(WorkBatch batch)
+    {
+        if (flushBatch(batch)) return true;
+
+        SolverEvents.OfferBlocked event = new SolverEvents.OfferBlocked();
+        event.begin();
+        event.size = batch.size();
+        int failedOffers = 1;
+        boolean accepted;
+        WaitStrategy waitStrategy = queueArray.getWaitStrategy();
+        while (!(accepted = flushBatch(batch)))
+        {
+            if (queueArray.solutionFound) break;
+            waitStrategy.backoff(failedOffers++);
+        }
+        event.failedOffers = failedOffers;
+        event.commit();
+        return accepted;
+    }
+
     private final boolean flushBatch(WorkBatch batch)
     {
         if (batch.isEmpty()) return false;
+        int size = batch.size();
+
+        SharedWorkRing ring = queueArray.getSharedRing();
+        if (ring != null)
+        {
+            // The ring copies the batch, so it is ours to recycle. Wait for room rather than dropping leaves while other processes catch up.
+            for (int attempt = 1; !ring.offer(batch); attempt++)
+            {
+                if (queueArray.solutionFound) return false;
+                queueArray.getWaitStrategy().backoff(attempt);
+            }
+            batch.clear();
+            workBatchPool.offer(batch);
+            combinationsShipped += size;
+            batchFlushed(size, -1);
+            return true;
+        }
 
         CombinationQueue[] queues = queueArray.getAllQueues();
         int startIdx = ThreadLocalRandom.current().nextInt(queues.length);
 
+        queueArray.batchQueued();
         for (int i = 0; i < queues.length; i++)
         {
-            if (queues[(startIdx + i) % queues.length].add(batch)) return true;
+            int queue = (startIdx + i) % queues.length;
+            if (queues[queue].add(batch))
+            {
+                combinationsShipped += size;
+                queueArray.getWaitStrategy().signal();
+                batchFlushed(size, queue);
+                return true;
+            }
         }
+        queueArray.batchDone(); // Nobody took it
 
         return false;
     }
 
+    private static void batchFlushed(int size, int queue)
+    {
+        SolverEvents.BatchFlushed event = new SolverEvents.BatchFlushed();
+        if (event.isEnabled())
+        {
+            event.size = size;
+            event.queue = queue;
+            event.commit();
+        }
+    }
+
     // Cache multiple adjacency mmasks to reduce synchronization
     private static final long[][] ADJACENCY_MASK_CACHE_FAST = new long[16][];
     private static final int[] CACHED_TRUE_CELLS_FAST = new int[16];
 
-    private static final boolean quickOddAdjacency(int[] combination, int firstTrueCell) 
+    static final boolean quickOddAdjacency(long clickLo, long clickHi, int firstTrueCell) 
     {
         // Get mask with minimal overhead
         long[] mask = ADJACENCY_MASK_CACHE_FAST[firstTrueCell & 15];
@@ -290,16 +612,8 @@ public class CombinationGenerator extends Thread
             mask = computeAdjacencyMaskFast(firstTrueCell);
         }
 
-        // Count adjacencies with unrolled checks for small arrays
-        int count = 0;
-        int length = combination.length;
-
-        for (int i = 0; i < length; i++)
-        {
-            int click = combination[i];
-            if ((mask[click >>> 6] & (1L << (click & 63))) != 0) count++;
-        }
-
+        // The number of clicks adjacent to the cell is the popcount of the overlap with its adjacency mask
+        int count = Long.bitCount(clickLo & mask[0]) + Long.bitCount(clickHi & mask[1]);
         return (count & 1) == 1; 
     }
 
@@ -333,18 +647,3 @@ public class CombinationGenerator extends Thread
         return ADJACENCY_MASK_CACHE_FAST[cacheIdx];
     }
 }
-
-class CombinationState 
-{
-    int start, size;
-    int[] indices;
-    long adjacencies = -1;
-
-    CombinationState(int start, int size, int[] indices, long adjacencyMask) 
-    {
-        this.start = start;
-        this.size = size;
-        this.indices = indices;
-        this.adjacencies = adjacencyMask;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.github.mrgarbagegamer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Fork/join version of the generator.
+ * Each task owns a DFS stack. Whenever its worker has no surplus of queued tasks (so other workers are idle or about to be),
+ * it hands the bottom half of the stack to a newly forked task. The bottom holds the shallowest states, i.e. the largest remaining
+ * subtrees, and since the stack mixes every depth, splits happen wherever the search currently is rather than only on the first click.
+ * The DFS itself is CombinationGenerator.search(), run by one CombinationGenerator per worker thread so its pools and batch stay thread-local.
+ */
+public class CombinationGeneratorTask extends CountedCompleter<Void>
+{
+    private static final long serialVersionUID = 1L; // ForkJoinTask is Serializable, but tasks never leave the pool
+    private static final int SURPLUS_THRESHOLD = 2; // Split while this worker has fewer queued tasks than this beyond the idle thieves
+
+    private final transient Deque<CombinationState> stack;
+    private final transient Generation generation;
+
+    private CombinationGeneratorTask(CombinationGeneratorTask parent, Deque<CombinationState> stack, Generation generation)
+    {
+        super(parent);
+        this.stack = stack;
+        this.generation = generation;
+    }
+
+    @Override
+    public void compute()
+    {
+        generation.engineForCurrentThread().search(stack, this::maybeSplit);
+        tryComplete();
+    }
+
+    private void maybeSplit(Deque<CombinationState> current)
+    {
+        if (current.size() < 2 || getSurplusQueuedTaskCount() >= SURPLUS_THRESHOLD) return;
+
+        // Move the bottom half over, keeping its order so the new task pops the same way this one would have
+        int toMove = current.size() / 2;
+        Deque<CombinationState> half = new ArrayDeque<>(toMove);
+        for (int i = 0; i < toMove; i++)
+        {
+            half.addFirst(current.pollLast());
+        }
+
+        addToPendingCount(1);
+        new CombinationGeneratorTask(this, half, generation).fork();
+    }
+
+    /**
+     * Generates every combination whose first click is in [firstClickStart, firstClickEnd) on the given pool, then flushes each worker's last batch.
+     * @param fusedTemplate Puzzle grid to clone for each worker in fused mode, or null to ship leaves to the consumers.
+     * @return The number of leaf candidates generated.
+     */
+    public static long generate(ForkJoinPool pool, CombinationQueueArray queueArray, int numClicks, int firstClickStart, int firstClickEnd, int[] trueCells, Grid fusedTemplate)
+    {
+        Generation generation = new Generation(queueArray, numClicks, trueCells, fusedTemplate);
+        pool.invoke(new CombinationGeneratorTask(null, CombinationGenerator.seedStack(firstClickStart, firstClickEnd, numClicks), generation));
+
+        // invoke() returning means every task has completed, so the engines' batches are safe to touch from here
+        long candidates = 0;
+        for (CombinationGenerator engine : generation.engines)
+        {
+            engine.flushRemaining();
+            candidates += engine.getCandidatesGenerated();
+        }
+        return candidates;
+    }
+
+    /**
+     * Creates a pool whose workers are named like the regular generator threads.
+     */
+    public static ForkJoinPool newPool(int parallelism)
+    {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName(String.format("Generator-%d", worker.getPoolIndex()));
+            return worker;
+        }, null, false);
+    }
+
+    // State shared by every task of one generate() call
+    private static final class Generation
+    {
+        final CombinationQueueArray queueArray;
+        final int numClicks;
+        final int[] trueCells;
+        final Grid fusedTemplate;
+        final ThreadLocal<CombinationGenerator> localEngine = new ThreadLocal<>();
+        final ConcurrentLinkedQueue<CombinationGenerator> engines = new ConcurrentLinkedQueue<>();
+
+        Generation(CombinationQueueArray queueArray, int numClicks, int[] trueCells, Grid fusedTemplate)
+        {
+            this.queueArray = queueArray;
+            this.numClicks = numClicks;
+            this.trueCells = trueCells;
+            this.fusedTemplate = fusedTemplate;
+        }
+
+        CombinationGenerator engineForCurrentThread()
+        {
+            CombinationGenerator engine = localEngine.get();
+            if (engine == null)
+            {
+                Grid fusedGrid = (fusedTemplate == null) ? null : fusedTemplate.clone();
+                engine = new CombinationGenerator(Thread.currentThread().getName(), queueArray, numClicks, 0, 0, trueCells, fusedGrid);
+                localEngine.set(engine);
+                engines.add(engine);
+            }
+            return engine;
+        }
+    }
+}
@@ -16,10 +16,18 @@ public class CombinationMessage implements Message, StringBuilderFormattable
         this.format = format;
         if (format == Grid.ValueFormat.Bitmask)
         {
-            throw new IllegalArgumentException("Cannot create CombinationMessage with Bitmask format at the moment. Use Index or PackedInt instead.");
+            throw new IllegalArgumentException("A Bitmask combination is two longs, use CombinationMessage(long, long) instead.");
         }
     }
 
+    /**
+     * Creates a message for a combination in Bitmask format (bit i set = cell i clicked).
+     */
+    public CombinationMessage(long lo, long hi)
+    {
+        this(Grid.bitmaskToIndices(lo, hi), Grid.ValueFormat.Index);
+    }
+
     public void convertTo(Grid.ValueFormat outputFormat) 
     {
         if (format == outputFormat) 
@@ -27,7 +35,7 @@ public class CombinationMessage implements Message, StringBuilderFormattable
             return; // No conversion needed
         } else if (outputFormat == Grid.ValueFormat.Bitmask) 
         {
-            throw new IllegalArgumentException("Cannot convert to Bitmask format at the moment.");
+            throw new IllegalArgumentException("Cannot convert the int list to Bitmask format, use getBitmask() instead.");
         }
 
         switch (outputFormat) 
@@ -90,8 +98,7 @@ public class CombinationMessage implements Message, StringBuilderFormattable
     {
         if (outputFormat == Grid.ValueFormat.Bitmask)
         {
-            // TODO: Look at making this possible, either by using an array of int bitmasks or making the return type a long[]
-            throw new IllegalArgumentException("Cannot convert to Bitmask format.");
+            throw new IllegalArgumentException("Cannot return Bitmask format as an int[], use getBitmask() instead.");
         } else if (outputFormat != format)
         {
             convertTo(outputFormat); // Convert to the requested format if needed
@@ -99,6 +106,15 @@ public class CombinationMessage implements Message, StringBuilderFormattable
         return list; // Return the combination in the requested format
     }
 
+    /**
+     * Returns the combination in Bitmask format ({lo, hi}).
+     */
+    public long[] getBitmask()
+    {
+        convertTo(Grid.ValueFormat.Index);
+        return Grid.indicesToBitmask(list);
+    }
+
     @Override
     public String getFormat() 
     {
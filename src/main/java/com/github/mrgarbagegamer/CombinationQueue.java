@@ -29,6 +29,14 @@ public class CombinationQueue
         return queue.relaxedOffer(workBatch);
     }
 
+    /**
+     * Approximate number of batches waiting, for monitoring only.
+     */
+    public int size()
+    {
+        return queue.size();
+    }
+
     /**
      * Retrieves a WorkBatch from the queue.
      * @return A WorkBatch to be processed, or null if the queue is empty.
@@ -1,18 +1,32 @@
 package com.github.mrgarbagegamer;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.jctools.queues.MpmcArrayQueue;
 
 public class CombinationQueueArray 
 {
     private final CombinationQueue[] queues;
+    private final WorkStealingDeque[] deques; // deques[i] belongs to the consumer of queues[i]
     private final AtomicInteger generatorsRemaining;
+    private final AtomicLong batchesInFlight = new AtomicLong(); // Batches offered to a local queue whose consumer has not finished them yet
     // REPLACED: The int[] pool is gone.
     // NEW: Central pool for recycled WorkBatch objects.
     private final MpmcArrayQueue<WorkBatch> workBatchPool;
     private volatile String winningMonkey = null;
     private volatile int[] winningCombination = null;
+    private volatile SharedWorkRing sharedRing = null; // Set when batches travel through a ring shared with other processes
+    private volatile Checkpoint checkpoint = null; // Set when progress is being checkpointed
+    private volatile Shard shard = null; // Set when this process only searches one shard of the question
+    private final LongAdder candidates = new LongAdder(); // Leaves generated by finished generators
+    private volatile SolutionSink solutionSink = null; // Set in --all mode, where solutions are collected instead of ending the search
+    private volatile Symmetry symmetry = null; // Set when generators only enumerate one combination per mirror orbit
+    private volatile WaitStrategy waitStrategy = WaitStrategy.create(WaitStrategy.Kind.Backoff);
+    private final AtomicBoolean winnerClaimed = new AtomicBoolean(false);
+    private final SolverMetrics metrics;
 
     public volatile boolean solutionFound = false;
     public volatile boolean generationComplete = false;
@@ -20,18 +34,21 @@ public class CombinationQueueArray
     public CombinationQueueArray(int numConsumers, int numGenerators) 
     {
         this.queues = new CombinationQueue[numConsumers];
+        this.deques = new WorkStealingDeque[numConsumers];
         this.generatorsRemaining = new AtomicInteger(numGenerators);
         
-        // The total number of batches that can be in-flight is the sum of all queue capacities
+        // The total number of batches that can be in-flight is the sum of all queue and deque capacities
         // The pool must be at least this large to guarantee a recycled batch is never discarded
         int totalWorkQueueCapacity = 0;
         for (int i = 0; i < numConsumers; i++) 
         {
             queues[i] = new CombinationQueue();
-            totalWorkQueueCapacity += queues[i].getCapacity();
+            deques[i] = new WorkStealingDeque(queues[i].getCapacity()); // A consumer only refills it when empty, with at most half a queue or deque
+            totalWorkQueueCapacity += queues[i].getCapacity() + deques[i].getCapacity();
         }
         // Set the recycle pool size to match the total work queue capacity
         this.workBatchPool = new MpmcArrayQueue<>(totalWorkQueueCapacity);
+        this.metrics = new SolverMetrics(queues, deques, batchesInFlight::get);
     }
 
     // NEW: Accessors for the WorkBatch pool
@@ -40,6 +57,114 @@ public class CombinationQueueArray
         return workBatchPool;
     }
 
+    /**
+     * Routes every batch through a ring shared with other solver processes instead of the local queues.
+     */
+    public void attachSharedRing(SharedWorkRing ring)
+    {
+        this.sharedRing = ring;
+    }
+
+    public SharedWorkRing getSharedRing()
+    {
+        return sharedRing;
+    }
+
+    /**
+     * Makes generators and consumers report their progress to the given checkpoint.
+     */
+    public void attachCheckpoint(Checkpoint checkpoint)
+    {
+        this.checkpoint = checkpoint;
+    }
+
+    public Checkpoint getCheckpoint()
+    {
+        return checkpoint;
+    }
+
+    /**
+     * Restricts the generators to the two-click prefixes owned by the given shard.
+     */
+    public void attachShard(Shard shard)
+    {
+        this.shard = shard;
+    }
+
+    public Shard getShard()
+    {
+        return shard;
+    }
+
+    /**
+     * Switches to all-solutions mode: solvers record every solution in the sink and keep searching.
+     */
+    public void attachSolutionSink(SolutionSink sink)
+    {
+        this.solutionSink = sink;
+    }
+
+    public SolutionSink getSolutionSink()
+    {
+        return solutionSink;
+    }
+
+    /**
+     * Makes generators skip every combination that is not the canonical member of its orbit under the given symmetry.
+     */
+    public void attachSymmetry(Symmetry symmetry)
+    {
+        this.symmetry = symmetry;
+    }
+
+    public Symmetry getSymmetry()
+    {
+        return symmetry;
+    }
+
+    /**
+     * Sets how consumers wait for batches and generators for queue space.
+     */
+    public void attachWaitStrategy(WaitStrategy waitStrategy)
+    {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public WaitStrategy getWaitStrategy()
+    {
+        return waitStrategy;
+    }
+
+    /**
+     * Records an all-mode solution (Bitmask format) in the sink, along with its mirror images if only canonical combinations are searched.
+     */
+    public void recordSolution(long lo, long hi)
+    {
+        Symmetry symmetry = this.symmetry;
+        if (symmetry == null)
+        {
+            solutionSink.add(lo, hi);
+            return;
+        }
+        long[] orbit = new long[symmetry.order() << 1];
+        for (int i = 0, count = symmetry.orbit(lo, hi, orbit); i < count; i++) solutionSink.add(orbit[i << 1], orbit[(i << 1) + 1]);
+    }
+
+    public SolverMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    public void addCandidates(long count)
+    {
+        candidates.add(count);
+    }
+
+    public long getCandidates()
+    {
+        return candidates.sum();
+    }
+
     public CombinationQueue getQueue(int idx) 
     { 
         return queues[idx]; 
@@ -50,21 +175,74 @@ public class CombinationQueueArray
         return queues; 
     }
 
+    public WorkStealingDeque getDeque(int idx)
+    {
+        return deques[idx];
+    }
+
+    public WorkStealingDeque[] getAllDeques()
+    {
+        return deques;
+    }
+
+    /**
+     * Counts a batch about to be offered to a local queue. Called before the offer, so a consumer can never finish it first.
+     */
+    public void batchQueued()
+    {
+        batchesInFlight.incrementAndGet();
+    }
+
+    /**
+     * Uncounts a batch that was either fully evaluated by a consumer or never accepted by any queue.
+     */
+    public void batchDone()
+    {
+        if (batchesInFlight.decrementAndGet() == 0 && generationComplete) waitStrategy.signalAll(); // That was the last one
+    }
+
+    public long getBatchesInFlight()
+    {
+        return batchesInFlight.get();
+    }
+
+    /**
+     * True once every generator has finished and every batch they queued has been evaluated, so consumers can stop.
+     * generationComplete is read first: generators count their last batch before finishing, so a 0 read after it is final.
+     */
+    public boolean isQuiescent()
+    {
+        return generationComplete && batchesInFlight.get() == 0;
+    }
+
     public void generatorFinished() 
     {
         if (generatorsRemaining.decrementAndGet() == 0) 
         {
             generationComplete = true;
+            waitStrategy.signalAll(); // Parked consumers should drain what is left and exit without waiting out their timeout
         }
     }
 
     public void solutionFound(String monkeyName, int[] winningCombination)
     {
-        if (solutionFound == false) 
+        // Several monkeys can hit at once, only the first one in claims the win
+        if (winnerClaimed.compareAndSet(false, true)) 
         {
-            solutionFound = true;
             this.winningMonkey = monkeyName;
             this.winningCombination = winningCombination;
+            solutionFound = true; // Published last, so whoever sees the flag also sees the winner
+            waitStrategy.signalAll();
+
+            long[] bitmask = Grid.indicesToBitmask(winningCombination);
+            SolverEvents.solutionFound(bitmask[0], bitmask[1]);
+
+            // Stop the other processes too
+            SharedWorkRing ring = sharedRing;
+            if (ring != null)
+            {
+                ring.publishSolution(bitmask[0], bitmask[1]);
+            }
         }
     }
 
@@ -0,0 +1,174 @@
+package com.github.mrgarbagegamer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The combinatorial number system over click combinations: the k-click combinations (ascending cell indices) in the lexicographic
+ * order CombinationGenerator's DFS visits them, numbered 0, 1, 2, ...
+ * Splitting the first-click range gives units of wildly different sizes (first click 0 roots C(108, k-1) combinations, first click 40
+ * a small fraction of that). Splitting the ranks gives units of exactly equal size, and seedStack() turns a unit back into a handful of
+ * DFS states, so each unit starts in O(k * cells) time.
+ * Ranks are longs: partition() returns null when the search has more combinations than that, and callers fall back to first clicks.
+ */
+public final class CombinationRanks
+{
+    private static final int N = Grid.NUM_CELLS;
+    private static final long[][] BINOMIAL = new long[N + 1][N + 1]; // BINOMIAL[n][r] = C(n, r), Long.MAX_VALUE once it overflows
+
+    static
+    {
+        for (int n = 0; n <= N; n++)
+        {
+            BINOMIAL[n][0] = 1;
+            for (int r = 1; r <= n; r++)
+            {
+                long a = BINOMIAL[n - 1][r - 1], b = BINOMIAL[n - 1][r];
+                BINOMIAL[n][r] = (a == Long.MAX_VALUE || b == Long.MAX_VALUE || a > Long.MAX_VALUE - b) ? Long.MAX_VALUE : a + b;
+            }
+        }
+    }
+
+    private CombinationRanks()
+    {
+    }
+
+    /**
+     * C(n, r), Long.MAX_VALUE if it does not fit in a long.
+     */
+    public static long binomial(int n, int r)
+    {
+        if (r < 0 || n < 0 || r > n) return 0;
+        return BINOMIAL[n][r];
+    }
+
+    /**
+     * Number of leaves under a DFS state with remaining clicks to go, the next one in [start, end).
+     * 0 if that does not fit in a long, which only happens when count() does not either.
+     */
+    public static long subtreeSize(int start, int end, int remaining)
+    {
+        long all = binomial(N - start, remaining);
+        if (all == Long.MAX_VALUE) return 0;
+        return all - binomial(N - end, remaining);
+    }
+
+    /**
+     * Number of k-click combinations whose first click is below firstClickEnd, which are exactly ranks [0, count).
+     * @return -1 if that does not fit in a long.
+     */
+    public static long count(int k, int firstClickEnd)
+    {
+        long all = binomial(N, k);
+        if (all == Long.MAX_VALUE) return -1;
+        return all - binomial(N - Math.min(firstClickEnd, N), k);
+    }
+
+    /**
+     * The combination of the given rank, in Index format.
+     */
+    public static int[] unrank(long rank, int k)
+    {
+        int[] combination = new int[k];
+        int x = 0;
+        for (int j = 0; j < k; j++)
+        {
+            // Skip the whole subtrees of smaller clicks at position j
+            long below;
+            while (rank >= (below = binomial(N - 1 - x, k - 1 - j)))
+            {
+                rank -= below;
+                x++;
+            }
+            combination[j] = x++;
+        }
+        return combination;
+    }
+
+    /**
+     * Rank of a combination in Index format, the inverse of unrank().
+     */
+    public static long rank(int[] combination, int size)
+    {
+        long rank = 0;
+        int x = 0;
+        for (int j = 0; j < size; j++)
+        {
+            for (; x < combination[j]; x++) rank += binomial(N - 1 - x, size - 1 - j);
+            x++;
+        }
+        return rank;
+    }
+
+    /**
+     * Splits ranks [0, count(k, firstClickEnd)) into at most numUnits equal ranges, in rank order.
+     * @return null if the ranks do not fit in a long.
+     */
+    public static List<RankRange> partition(int k, int firstClickEnd, int numUnits)
+    {
+        long total = count(k, firstClickEnd);
+        if (total < 0) return null;
+
+        int units = (int) Math.max(1, Math.min(numUnits, total));
+        long base = total / units, extra = total % units;
+        List<RankRange> ranges = new ArrayList<>(units);
+        long start = 0;
+        for (int i = 0; i < units; i++)
+        {
+            long end = start + base + ((i < extra) ? 1 : 0);
+            ranges.add(new RankRange(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * Builds a DFS stack that generates exactly the combinations of ranks [range.start, range.end), in rank order.
+     * With c the first combination of the range and e the first one past it, sharing their first m clicks, the range is: c and
+     * everything after it that still starts with c's first m + 1 clicks, the subtrees between c's and e's click at position m, and
+     * everything before e that starts with e's first m + 1 clicks. Each of those is a state with a bounded next click.
+     */
+    static Deque<CombinationState> seedStack(RankRange range, int k)
+    {
+        Deque<CombinationState> stack = new ArrayDeque<>();
+        if (range.start >= range.end) return stack;
+
+        int[] c = unrank(range.start, k);
+        int[] e = (range.end < binomial(N, k)) ? unrank(range.end, k) : null;
+        int m = 0;
+        if (e != null) while (c[m] == e[m]) m++;
+
+        // Pushed latest first. Before e: next click at position d below e[d], for d = k-1 down to m+1
+        if (e != null)
+        {
+            for (int d = k - 1; d > m; d--) push(stack, e, d, e[d - 1] + 1, e[d], k);
+        }
+
+        if (m == k - 1)
+        {
+            push(stack, c, m, c[m], (e != null) ? e[m] : N, k); // c and e only differ in their last click
+            return stack;
+        }
+
+        // Between c and e at position m (to the end of the board if there is no e)
+        push(stack, c, m, c[m] + 1, (e != null) ? e[m] : N, k);
+
+        // From c on: next click at position d above c[d], for d = m+1 up to k-2, and c itself with its later siblings on top
+        for (int d = m + 1; d < k - 1; d++) push(stack, c, d, c[d] + 1, N, k);
+        push(stack, c, k - 1, c[k - 1], N, k);
+        return stack;
+    }
+
+    // A state with the first size clicks of prefix and its next click in [start, end)
+    private static void push(Deque<CombinationState> stack, int[] prefix, int size, int start, int end, int k)
+    {
+        if (start >= end) return;
+        int[] indices = new int[k];
+        System.arraycopy(prefix, 0, indices, 0, size);
+        CombinationState state = new CombinationState(start, size, indices, -1);
+        state.end = end;
+        stack.push(state);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.mrgarbagegamer;
+
+class CombinationState 
+{
+    int start, size;
+    int end = Grid.NUM_CELLS; // Next click is in [start, end), only seeds of a RankRange bound it
+    int[] indices;
+    long adjacencies = -1;
+    long boardLo, boardHi; // Board after these clicks in Bitmask format, valid whenever adjacencies is
+
+    CombinationState(int start, int size, int[] indices, long adjacencyMask) 
+    {
+        this.start = start;
+        this.size = size;
+        this.indices = indices;
+        this.adjacencies = adjacencyMask;
+    }
+}
\ No newline at end of file
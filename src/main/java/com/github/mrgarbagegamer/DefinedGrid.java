@@ -0,0 +1,40 @@
+package com.github.mrgarbagegamer;
+
+/**
+ * Grid of a puzzle loaded from a PuzzleDefinition rather than written as a subclass like Grid22.
+ */
+public class DefinedGrid extends Grid
+{
+    // Not final: Grid's constructor calls initialize() before they are assigned, so the constructor initializes again
+    private long startLo, startHi;
+
+    public DefinedGrid(long[] startState)
+    {
+        this.startLo = startState[0];
+        this.startHi = startState[1];
+        initialize();
+    }
+
+    final void initialize()
+    {
+        gridState[0] = startLo;
+        gridState[1] = startHi;
+
+        firstTrueCell = (startLo != 0) ? Long.numberOfTrailingZeros(startLo) : (startHi != 0) ? 64 + Long.numberOfTrailingZeros(startHi) : -1;
+        trueCellsCount = Long.bitCount(startLo) + Long.bitCount(startHi);
+        recalculationNeeded = false;
+    }
+
+    // Grid.clone() needs a no-argument constructor, and the start state has to come along anyway
+    @Override
+    public Grid clone()
+    {
+        DefinedGrid copy = new DefinedGrid(new long[] {startLo, startHi});
+        copy.gridState[0] = gridState[0];
+        copy.gridState[1] = gridState[1];
+        copy.trueCellsCount = trueCellsCount;
+        copy.firstTrueCell = firstTrueCell;
+        copy.recalculationNeeded = recalculationNeeded;
+        return copy;
+    }
+}
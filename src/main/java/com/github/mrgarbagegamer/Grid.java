@@ -13,15 +13,16 @@ public abstract class Grid
     {
         PackedInt, // row * 100 + col
         Index, // 0-108
-        Bitmask // Unused for the moment, but we could directly store combinations as an array of two bitmasks
+        Bitmask // A whole combination as two longs: bit i set = cell i (Index format) clicked
     }
     
-    // Constants
-    public static final int NUM_ROWS = 7;
-    public static final int ODD_NUM_COLS = 15;
-    public static final int EVEN_NUM_COLS = 16;
+    // Constants, taken from the 7x16 layout this class and the two-long pipeline are specialised for (see BoardLayout for other sizes)
+    public static final BoardLayout LAYOUT = BoardLayout.STANDARD;
+    public static final int NUM_ROWS = LAYOUT.rows;
+    public static final int ODD_NUM_COLS = LAYOUT.oddCols;
+    public static final int EVEN_NUM_COLS = LAYOUT.evenCols;
     public static final int[] ROW_OFFSETS = {0, 16, 31, 47, 62, 78, 93};
-    public static final int NUM_CELLS = 109;
+    public static final int NUM_CELLS = LAYOUT.numCells;
 
     // Bitmask grid state - 109 cells fit in 2 longs (128 bits)
     protected final long[] gridState = new long[2];
@@ -494,14 +495,42 @@ public abstract class Grid
         recalculationNeeded = true;
     }
 
-    public void click(long[] bitmask) 
+    /**
+     * Clicks every cell of a combination given in Bitmask format.
+     * @param lo Clicks on cells 0-63.
+     * @param hi Clicks on cells 64-108, shifted down by 64.
+     */
+    public final void clickBitmask(long lo, long hi)
     {
-        if (bitmask.length != 2) 
+        for (long bits = lo; bits != 0; bits &= bits - 1)
         {
-            throw new IllegalArgumentException("Bitmask must be of length 2.");
+            int cell = Long.numberOfTrailingZeros(bits);
+            gridState[0] ^= ADJACENCY_MASKS[cell][0];
+            gridState[1] ^= ADJACENCY_MASKS[cell][1];
         }
-        gridState[0] ^= bitmask[0];
-        gridState[1] ^= bitmask[1];
+        for (long bits = hi; bits != 0; bits &= bits - 1)
+        {
+            int cell = 64 + Long.numberOfTrailingZeros(bits);
+            gridState[0] ^= ADJACENCY_MASKS[cell][0];
+            gridState[1] ^= ADJACENCY_MASKS[cell][1];
+        }
+
+        // Mark for recalculation of first true cell and count
+        recalculationNeeded = true;
+    }
+
+    /**
+     * Flips the cells set in stateMask ({lo, hi}, one bit per cell like getGridState()) without touching their neighbours.
+     * This is not a click: to apply a set of clicks in Bitmask format use clickBitmask().
+     */
+    public void toggle(long[] stateMask) 
+    {
+        if (stateMask.length != 2) 
+        {
+            throw new IllegalArgumentException("State mask must be of length 2.");
+        }
+        gridState[0] ^= stateMask[0];
+        gridState[1] ^= stateMask[1];
         
         // Mark for recalculation of first true cell
         recalculationNeeded = true;
@@ -736,6 +765,42 @@ public abstract class Grid
         return areAdjacent(cellA, cellB, ValueFormat.Index);
     }
 
+    /**
+     * Returns a copy of the pre-computed adjacency mask for a cell.
+     * Clicking the cell XORs exactly this mask into the grid state.
+     * @param cell The cell, in Index format (0-108).
+     * @return A two-long bitmask of the cells toggled by the click.
+     */
+    public static long[] getAdjacencyMask(int cell)
+    {
+        return ADJACENCY_MASKS[cell].clone();
+    }
+
+    /**
+     * Converts a click bitmask (bit i set = cell i clicked) to a sorted array of cells in Index format.
+     */
+    public static int[] bitmaskToIndices(long lo, long hi)
+    {
+        int[] result = new int[Long.bitCount(lo) + Long.bitCount(hi)];
+        int idx = 0;
+        for (long bits = lo; bits != 0; bits &= bits - 1) result[idx++] = Long.numberOfTrailingZeros(bits);
+        for (long bits = hi; bits != 0; bits &= bits - 1) result[idx++] = 64 + Long.numberOfTrailingZeros(bits);
+        return result;
+    }
+
+    /**
+     * Converts cells in Index format to a click bitmask ({lo, hi}, bit i set = cell i clicked).
+     */
+    public static long[] indicesToBitmask(int[] cells)
+    {
+        long[] bitmask = new long[2];
+        for (int cell : cells)
+        {
+            bitmask[cell >>> 6] |= 1L << (cell & 63);
+        }
+        return bitmask;
+    }
+
     // Legacy compatibility - expose bitmask for direct access when needed
     public long[] getGridState() 
     {
@@ -0,0 +1,226 @@
+package com.github.mrgarbagegamer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * "Chase the lights" solver.
+ * Once the clicks in rows 0..r are fixed, the only clicks that can still change row r are its neighbours in row r+1,
+ * so clearing row r left to right forces almost every click in row r+1. The plan below is derived from the adjacency tables:
+ * each step either branches on a free click, forces a click to clear a cell, or checks that a cell ended up clear.
+ * Only the 2^16 first-row patterns (plus the one free click per odd-to-even row transition) are ever enumerated.
+ */
+public class LightChaser
+{
+    private static final Logger logger = LogManager.getLogger(LightChaser.class);
+
+    private static final int STEP_FREE = 0; // Branch on clicking stepClick or not
+    private static final int STEP_FORCE = 1; // Click stepClick iff stepCell is currently lit
+    private static final int STEP_CHECK = 2; // stepCell must be clear, otherwise prune
+
+    private static final int PATTERNS_PER_CLAIM = 256;
+
+    private static final long[] ADJ_LO = new long[Grid.NUM_CELLS];
+    private static final long[] ADJ_HI = new long[Grid.NUM_CELLS];
+
+    // The plan for rows 1..6 (row 0 clicks are enumerated directly)
+    private static final int[] STEP_TYPE;
+    private static final int[] STEP_CLICK;
+    private static final int[] STEP_CELL;
+
+    static
+    {
+        for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+        {
+            long[] mask = Grid.getAdjacencyMask(cell);
+            ADJ_LO[cell] = mask[0];
+            ADJ_HI[cell] = mask[1];
+        }
+
+        List<int[]> steps = new ArrayList<>();
+        for (int row = 0; row < Grid.NUM_ROWS - 1; row++)
+        {
+            boolean[] assigned = new boolean[Grid.NUM_CELLS];
+            for (int cell = rowStart(row); cell < rowEnd(row); cell++)
+            {
+                // Neighbours of this cell in the next row that have not been decided yet (findAdjacents is sorted)
+                int last = -1;
+                for (int adj : Grid.findAdjacents(cell))
+                {
+                    if (adj < rowStart(row + 1) || adj >= rowEnd(row + 1) || assigned[adj]) continue;
+                    if (last != -1) steps.add(new int[] {STEP_FREE, last, -1});
+                    assigned[last = adj] = true;
+                }
+                steps.add((last == -1) ? new int[] {STEP_CHECK, -1, cell} : new int[] {STEP_FORCE, last, cell});
+            }
+            for (int click = rowStart(row + 1); click < rowEnd(row + 1); click++)
+            {
+                if (!assigned[click]) steps.add(new int[] {STEP_FREE, click, -1});
+            }
+        }
+        for (int cell = rowStart(Grid.NUM_ROWS - 1); cell < rowEnd(Grid.NUM_ROWS - 1); cell++)
+        {
+            steps.add(new int[] {STEP_CHECK, -1, cell});
+        }
+
+        STEP_TYPE = new int[steps.size()];
+        STEP_CLICK = new int[steps.size()];
+        STEP_CELL = new int[steps.size()];
+        for (int i = 0; i < steps.size(); i++)
+        {
+            STEP_TYPE[i] = steps.get(i)[0];
+            STEP_CLICK[i] = steps.get(i)[1];
+            STEP_CELL[i] = steps.get(i)[2];
+        }
+    }
+
+    private final long baseLo, baseHi;
+    private final int numThreads;
+
+    public LightChaser(Grid grid, int numThreads)
+    {
+        long[] state = grid.getGridState();
+        this.baseLo = state[0];
+        this.baseHi = state[1];
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Chases every first-row pattern and returns all solutions as click bitmasks ({lo, hi}).
+     */
+    public List<long[]> findAllSolutions()
+    {
+        int firstRowCells = rowEnd(0) - rowStart(0);
+        int numPatterns = 1 << firstRowCells;
+        AtomicInteger nextPattern = new AtomicInteger(0);
+
+        List<List<long[]>> found = new ArrayList<>(numThreads);
+        Thread[] chasers = new Thread[numThreads];
+
+        for (int t = 0; t < numThreads; t++)
+        {
+            List<long[]> local = new ArrayList<>();
+            found.add(local);
+            chasers[t] = new Thread(() -> {
+                int start;
+                while ((start = nextPattern.getAndAdd(PATTERNS_PER_CLAIM)) < numPatterns)
+                {
+                    int end = Math.min(numPatterns, start + PATTERNS_PER_CLAIM);
+                    for (int pattern = start; pattern < end; pattern++)
+                    {
+                        chaseFirstRow(pattern, local);
+                    }
+                }
+            }, String.format("Chaser-%d", t));
+            chasers[t].start();
+        }
+
+        List<long[]> solutions = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++)
+        {
+            try
+            {
+                chasers[t].join();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            solutions.addAll(found.get(t));
+        }
+
+        logger.debug("Chased {} first-row patterns, found {} solutions", numPatterns, solutions.size());
+        return solutions;
+    }
+
+    /**
+     * Returns the solution with the fewest clicks in Index format, or null if the grid cannot be solved.
+     */
+    public int[] findMinimumSolution()
+    {
+        long[] best = null;
+        for (long[] solution : findAllSolutions())
+        {
+            if (best == null || weight(solution) < weight(best)) best = solution;
+        }
+        return (best == null) ? null : Grid.bitmaskToIndices(best[0], best[1]);
+    }
+
+    private void chaseFirstRow(int pattern, List<long[]> solutions)
+    {
+        long lo = baseLo, hi = baseHi;
+        long clickLo = 0L, clickHi = 0L;
+
+        for (int bits = pattern; bits != 0; bits &= bits - 1)
+        {
+            int click = rowStart(0) + Integer.numberOfTrailingZeros(bits);
+            lo ^= ADJ_LO[click];
+            hi ^= ADJ_HI[click];
+            if (click < 64) clickLo |= (1L << click); else clickHi |= (1L << (click - 64));
+        }
+
+        chase(0, lo, hi, clickLo, clickHi, solutions);
+    }
+
+    // Runs the plan from the given step, recursing only on free clicks
+    private static void chase(int step, long lo, long hi, long clickLo, long clickHi, List<long[]> solutions)
+    {
+        for (; step < STEP_TYPE.length; step++)
+        {
+            int click = STEP_CLICK[step];
+            int cell = STEP_CELL[step];
+
+            switch (STEP_TYPE[step])
+            {
+                case STEP_FREE:
+                    // Explore the branch with the click, then continue this loop without it
+                    if (click < 64)
+                    {
+                        chase(step + 1, lo ^ ADJ_LO[click], hi ^ ADJ_HI[click], clickLo | (1L << click), clickHi, solutions);
+                    }
+                    else
+                    {
+                        chase(step + 1, lo ^ ADJ_LO[click], hi ^ ADJ_HI[click], clickLo, clickHi | (1L << (click - 64)), solutions);
+                    }
+                    break;
+                case STEP_FORCE:
+                    if (isLit(lo, hi, cell))
+                    {
+                        lo ^= ADJ_LO[click];
+                        hi ^= ADJ_HI[click];
+                        if (click < 64) clickLo |= (1L << click); else clickHi |= (1L << (click - 64));
+                    }
+                    break;
+                case STEP_CHECK:
+                    if (isLit(lo, hi, cell)) return;
+                    break;
+            }
+        }
+
+        solutions.add(new long[] {clickLo, clickHi});
+    }
+
+    private static boolean isLit(long lo, long hi, int cell)
+    {
+        return (cell < 64) ? (lo & (1L << cell)) != 0 : (hi & (1L << (cell - 64))) != 0;
+    }
+
+    private static int rowStart(int row)
+    {
+        return Grid.ROW_OFFSETS[row];
+    }
+
+    private static int rowEnd(int row)
+    {
+        return (row + 1 < Grid.NUM_ROWS) ? Grid.ROW_OFFSETS[row + 1] : Grid.NUM_CELLS;
+    }
+
+    public static int weight(long[] clicks)
+    {
+        return Long.bitCount(clicks[0]) + Long.bitCount(clicks[1]);
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.mrgarbagegamer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exact solver that treats the puzzle as a linear system over GF(2).
+ * Every click XORs a fixed adjacency mask into the grid state, so a set of clicks x solves the grid iff A·x = gridState,
+ * where column j of A is the adjacency mask of cell j. Gaussian elimination gives one particular solution plus a basis
+ * of the null space, and every solution is the particular solution XOR some combination of basis vectors.
+ */
+public class LinearSolver
+{
+    private static final Logger logger = LogManager.getLogger(LinearSolver.class);
+
+    // Enumerating the null space costs 2^nullity steps, so refuse to do it past this point
+    public static final int MAX_ENUMERABLE_NULLITY = 32;
+
+    private final boolean solvable;
+    private final long[] particular = new long[2]; // Click bitmask of the particular solution (free variables = 0)
+    private final long[][] nullBasis; // Each entry is a click bitmask of one null space basis vector
+
+    public LinearSolver(Grid grid)
+    {
+        int n = Grid.NUM_CELLS;
+
+        // Row c holds the clicks that toggle cell c (bit-packed over 128 columns), rhs[c] holds the current state of cell c
+        long[][] rows = new long[n][2];
+        boolean[] rhs = new boolean[n];
+        long[] state = grid.getGridState();
+
+        for (int click = 0; click < n; click++)
+        {
+            long[] mask = Grid.getAdjacencyMask(click);
+            for (int cell = 0; cell < n; cell++)
+            {
+                if ((mask[cell >>> 6] & (1L << (cell & 63))) != 0)
+                {
+                    rows[cell][click >>> 6] |= (1L << (click & 63));
+                }
+            }
+        }
+        for (int cell = 0; cell < n; cell++)
+        {
+            rhs[cell] = (state[cell >>> 6] & (1L << (cell & 63))) != 0;
+        }
+
+        // Gauss-Jordan elimination to reduced row echelon form
+        int[] pivotColumnOfRow = new int[n];
+        boolean[] isPivotColumn = new boolean[n];
+        int rank = 0;
+
+        for (int col = 0; col < n && rank < n; col++)
+        {
+            int word = col >>> 6;
+            long bit = 1L << (col & 63);
+
+            int pivot = -1;
+            for (int r = rank; r < n; r++)
+            {
+                if ((rows[r][word] & bit) != 0)
+                {
+                    pivot = r;
+                    break;
+                }
+            }
+            if (pivot == -1) continue; // Free column
+
+            long[] tmpRow = rows[pivot]; rows[pivot] = rows[rank]; rows[rank] = tmpRow;
+            boolean tmpRhs = rhs[pivot]; rhs[pivot] = rhs[rank]; rhs[rank] = tmpRhs;
+
+            for (int r = 0; r < n; r++)
+            {
+                if (r != rank && (rows[r][word] & bit) != 0)
+                {
+                    rows[r][0] ^= rows[rank][0];
+                    rows[r][1] ^= rows[rank][1];
+                    rhs[r] ^= rhs[rank];
+                }
+            }
+
+            pivotColumnOfRow[rank] = col;
+            isPivotColumn[col] = true;
+            rank++;
+        }
+
+        // Any all-zero row with a non-zero rhs means the system is inconsistent
+        boolean consistent = true;
+        for (int r = rank; r < n; r++)
+        {
+            if (rhs[r])
+            {
+                consistent = false;
+                break;
+            }
+        }
+        this.solvable = consistent;
+
+        if (consistent)
+        {
+            for (int r = 0; r < rank; r++)
+            {
+                if (rhs[r])
+                {
+                    int col = pivotColumnOfRow[r];
+                    particular[col >>> 6] |= (1L << (col & 63));
+                }
+            }
+        }
+
+        // One basis vector per free column: set the free variable, then back-solve every pivot variable
+        this.nullBasis = new long[n - rank][];
+        int b = 0;
+        for (int free = 0; free < n; free++)
+        {
+            if (isPivotColumn[free]) continue;
+
+            long[] vector = new long[2];
+            vector[free >>> 6] |= (1L << (free & 63));
+            for (int r = 0; r < rank; r++)
+            {
+                if ((rows[r][free >>> 6] & (1L << (free & 63))) != 0)
+                {
+                    int col = pivotColumnOfRow[r];
+                    vector[col >>> 6] |= (1L << (col & 63));
+                }
+            }
+            nullBasis[b++] = vector;
+        }
+
+        logger.debug("GF(2) elimination finished: rank {}, nullity {}, solvable {}", rank, nullBasis.length, solvable);
+    }
+
+    public boolean isSolvable()
+    {
+        return solvable;
+    }
+
+    public int getNullity()
+    {
+        return nullBasis.length;
+    }
+
+    /**
+     * Returns true if the null space is small enough to be walked exhaustively.
+     */
+    public boolean isEnumerable()
+    {
+        return nullBasis.length <= MAX_ENUMERABLE_NULLITY;
+    }
+
+    /**
+     * Returns the solution with the fewest clicks, in Index format, or null if the grid cannot be solved.
+     */
+    public int[] findMinimumSolution()
+    {
+        if (!solvable) return null;
+        checkEnumerable();
+
+        long lo = particular[0], hi = particular[1];
+        long bestLo = lo, bestHi = hi;
+        int bestWeight = Long.bitCount(lo) + Long.bitCount(hi);
+
+        // Walk the null space in Gray code order so each step is a single basis XOR
+        long count = 1L << nullBasis.length;
+        for (long g = 1; g < count; g++)
+        {
+            long[] vector = nullBasis[Long.numberOfTrailingZeros(g)];
+            lo ^= vector[0];
+            hi ^= vector[1];
+
+            int weight = Long.bitCount(lo) + Long.bitCount(hi);
+            if (weight < bestWeight)
+            {
+                bestWeight = weight;
+                bestLo = lo;
+                bestHi = hi;
+            }
+        }
+
+        return Grid.bitmaskToIndices(bestLo, bestHi);
+    }
+
+    /**
+     * Returns every solution that uses exactly the given number of clicks, each in Index format.
+     */
+    public List<int[]> findSolutionsOfWeight(int numClicks)
+    {
+        List<int[]> solutions = new ArrayList<>();
+        if (!solvable) return solutions;
+        checkEnumerable();
+
+        long lo = particular[0], hi = particular[1];
+        if (Long.bitCount(lo) + Long.bitCount(hi) == numClicks) solutions.add(Grid.bitmaskToIndices(lo, hi));
+
+        long count = 1L << nullBasis.length;
+        for (long g = 1; g < count; g++)
+        {
+            long[] vector = nullBasis[Long.numberOfTrailingZeros(g)];
+            lo ^= vector[0];
+            hi ^= vector[1];
+
+            if (Long.bitCount(lo) + Long.bitCount(hi) == numClicks) solutions.add(Grid.bitmaskToIndices(lo, hi));
+        }
+
+        return solutions;
+    }
+
+    private void checkEnumerable()
+    {
+        if (!isEnumerable())
+        {
+            throw new IllegalStateException("Null space of dimension " + nullBasis.length + " is too large to enumerate.");
+        }
+    }
+}
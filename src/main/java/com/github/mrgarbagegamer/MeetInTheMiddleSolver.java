@@ -0,0 +1,445 @@
+package com.github.mrgarbagegamer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Meet-in-the-middle search for a k-click solution.
+ * A sorted combination c0 < c1 < ... < c(k-1) is split into a left half of ceil(k/2) clicks and a right half of floor(k/2) clicks,
+ * with every left click below every right click. The XOR residual of each left half is stored in a primitive hash table, and each
+ * right half probes it with baseGrid XOR its own residual. A hit whose left half ends before the right half starts is a solution.
+ * When the table does not fit in the memory budget, both halves are partitioned by hash into spill files that are later
+ * memory-mapped and joined one partition at a time.
+ */
+public class MeetInTheMiddleSolver
+{
+    private static final Logger logger = LogManager.getLogger(MeetInTheMiddleSolver.class);
+
+    private static final int ENTRY_BYTES = 32; // residual lo/hi + click mask lo/hi
+    private static final int SPILL_BUFFER_BYTES = 1 << 16;
+    private static final int MAX_OPEN_PARTITIONS = 256;
+    private static final long MAX_MAPPED_CHUNK = (Integer.MAX_VALUE / ENTRY_BYTES) * (long) ENTRY_BYTES;
+    private static final int MAX_TABLE_CAPACITY = 1 << 30;
+
+    private static final long[] ADJ_LO = new long[Grid.NUM_CELLS];
+    private static final long[] ADJ_HI = new long[Grid.NUM_CELLS];
+
+    static
+    {
+        for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+        {
+            long[] mask = Grid.getAdjacencyMask(cell);
+            ADJ_LO[cell] = mask[0];
+            ADJ_HI[cell] = mask[1];
+        }
+    }
+
+    private final long baseLo, baseHi;
+    private final int numClicks;
+    private final int leftSize, rightSize;
+    private final int numThreads;
+    private final long memoryBudgetBytes;
+    private final Path spillDirectory;
+
+    private volatile long[] solution = null; // Click bitmask of the first solution found
+
+    public MeetInTheMiddleSolver(Grid grid, int numClicks, int numThreads, long memoryBudgetBytes, Path spillDirectory)
+    {
+        long[] state = grid.getGridState();
+        this.baseLo = state[0];
+        this.baseHi = state[1];
+        this.numClicks = numClicks;
+        this.leftSize = (numClicks + 1) / 2;
+        this.rightSize = numClicks / 2;
+        this.numThreads = Math.max(1, numThreads);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Runs the search.
+     * @return The first solution found in Index format, or null if there is no solution with exactly numClicks clicks.
+     */
+    public int[] solve() throws IOException
+    {
+        if (numClicks < 1 || numClicks > Grid.NUM_CELLS) return null;
+
+        // Left halves use clicks [0, 109 - rightSize), right halves use clicks [leftSize, 109)
+        long leftCount = binomial(Grid.NUM_CELLS - rightSize, leftSize);
+        long capacity = tableCapacityFor(leftCount);
+        long tableBytes = capacity * ENTRY_BYTES;
+
+        if (capacity <= MAX_TABLE_CAPACITY && tableBytes <= memoryBudgetBytes)
+        {
+            logger.info("MITM - {} left halves of {} clicks fit in memory ({} MB table)", leftCount, leftSize, tableBytes >> 20);
+            solveInMemory((int) capacity);
+        }
+        else
+        {
+            int partitions = 1;
+            while (tableCapacityFor((leftCount + partitions - 1) / partitions) > MAX_TABLE_CAPACITY
+                   || tableCapacityFor((leftCount + partitions - 1) / partitions) * ENTRY_BYTES > memoryBudgetBytes)
+            {
+                partitions <<= 1;
+            }
+            logger.info("MITM - {} left halves of {} clicks exceed the {} MB budget, spilling to {} partitions",
+                        leftCount, leftSize, memoryBudgetBytes >> 20, partitions);
+            solveSpilled(partitions);
+        }
+
+        long[] found = solution;
+        return (found == null) ? null : Grid.bitmaskToIndices(found[0], found[1]);
+    }
+
+    private void solveInMemory(int capacity)
+    {
+        ResidualTable table = new ResidualTable(capacity);
+        enumerate(leftSize, 0, Grid.NUM_CELLS - rightSize, (resLo, resHi, clickLo, clickHi) -> {
+            table.putIfLowerMax(resLo, resHi, clickLo, clickHi);
+            return true;
+        });
+        logger.info("MITM - Left table built with {} distinct residuals", table.size());
+
+        // Probe in parallel, handing out right halves by their first click
+        AtomicInteger nextFirstClick = new AtomicInteger(leftSize);
+        Thread[] probers = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++)
+        {
+            probers[t] = new Thread(() -> {
+                int first;
+                while (solution == null && (first = nextFirstClick.getAndIncrement()) <= Grid.NUM_CELLS - rightSize)
+                {
+                    probeFrom(table, first);
+                }
+            }, String.format("MITM-Prober-%d", t));
+            probers[t].start();
+        }
+        for (Thread prober : probers)
+        {
+            try
+            {
+                prober.join();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Probes every right half whose first click is the given cell
+    private void probeFrom(ResidualTable table, int first)
+    {
+        if (rightSize == 0)
+        {
+            // k = 1: the single left click must clear the grid on its own
+            if (first == leftSize) probe(table, baseLo, baseHi, 0L, 0L);
+            return;
+        }
+
+        long lo = baseLo ^ ADJ_LO[first], hi = baseHi ^ ADJ_HI[first];
+        long clickLo = (first < 64) ? (1L << first) : 0L;
+        long clickHi = (first < 64) ? 0L : (1L << (first - 64));
+
+        enumerateFrom(rightSize - 1, first + 1, Grid.NUM_CELLS, lo, hi, clickLo, clickHi,
+                      (resLo, resHi, cLo, cHi) -> probe(table, resLo, resHi, cLo, cHi));
+    }
+
+    private boolean probe(ResidualTable table, long targetLo, long targetHi, long rightLo, long rightHi)
+    {
+        int slot = table.find(targetLo, targetHi);
+        if (slot < 0) return solution == null;
+
+        long leftLo = table.clickLo[slot], leftHi = table.clickHi[slot];
+        if ((rightLo == 0L && rightHi == 0L) || highestBit(leftLo, leftHi) < lowestBit(rightLo, rightHi))
+        {
+            recordSolution(leftLo | rightLo, leftHi | rightHi);
+            return false;
+        }
+        return solution == null;
+    }
+
+    private synchronized void recordSolution(long lo, long hi)
+    {
+        if (solution == null) solution = new long[] {lo, hi};
+    }
+
+    private void solveSpilled(int partitions) throws IOException
+    {
+        Path dir = Files.createTempDirectory(spillDirectory, "mitm-");
+        int partitionShift = 64 - Integer.numberOfTrailingZeros(partitions);
+        try
+        {
+            Path[] leftFiles = new Path[partitions];
+            Path[] rightFiles = new Path[partitions];
+            for (int p = 0; p < partitions; p++)
+            {
+                leftFiles[p] = dir.resolve("left-" + p + ".bin");
+                rightFiles[p] = dir.resolve("right-" + p + ".bin");
+            }
+
+            // Keep the number of open spill files bounded; more partitions than that means one enumeration pass per group
+            for (int group = 0; group < partitions; group += MAX_OPEN_PARTITIONS)
+            {
+                int groupEnd = Math.min(partitions, group + MAX_OPEN_PARTITIONS);
+                try (SpillWriter left = new SpillWriter(leftFiles, group, groupEnd, partitionShift))
+                {
+                    enumerate(leftSize, 0, Grid.NUM_CELLS - rightSize, (resLo, resHi, clickLo, clickHi) -> {
+                        left.write(resLo, resHi, clickLo, clickHi);
+                        return true;
+                    });
+                }
+                try (SpillWriter right = new SpillWriter(rightFiles, group, groupEnd, partitionShift))
+                {
+                    if (rightSize == 0)
+                    {
+                        right.write(baseLo, baseHi, 0L, 0L);
+                    }
+                    else
+                    {
+                        enumerate(rightSize, leftSize, Grid.NUM_CELLS, (resLo, resHi, clickLo, clickHi) -> {
+                            right.write(baseLo ^ resLo, baseHi ^ resHi, clickLo, clickHi);
+                            return true;
+                        });
+                    }
+                }
+            }
+            logger.info("MITM - Spilled both halves to {}", dir);
+
+            for (int p = 0; p < partitions && solution == null; p++)
+            {
+                joinPartition(leftFiles[p], rightFiles[p]);
+                logger.debug("MITM - Joined partition {}/{}", p + 1, partitions);
+            }
+        } finally
+        {
+            try (var files = Files.list(dir))
+            {
+                for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private void joinPartition(Path leftFile, Path rightFile) throws IOException
+    {
+        try (FileChannel leftChannel = FileChannel.open(leftFile, StandardOpenOption.READ);
+             FileChannel rightChannel = FileChannel.open(rightFile, StandardOpenOption.READ))
+        {
+            ResidualTable table = new ResidualTable((int) tableCapacityFor(leftChannel.size() / ENTRY_BYTES));
+
+            for (long pos = 0, size = leftChannel.size(); pos < size; pos += MAX_MAPPED_CHUNK)
+            {
+                MappedByteBuffer map = leftChannel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAPPED_CHUNK, size - pos));
+                map.order(ByteOrder.nativeOrder());
+                while (map.hasRemaining())
+                {
+                    table.putIfLowerMax(map.getLong(), map.getLong(), map.getLong(), map.getLong());
+                }
+            }
+
+            for (long pos = 0, size = rightChannel.size(); pos < size && solution == null; pos += MAX_MAPPED_CHUNK)
+            {
+                MappedByteBuffer map = rightChannel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAPPED_CHUNK, size - pos));
+                map.order(ByteOrder.nativeOrder());
+                while (map.hasRemaining())
+                {
+                    if (!probe(table, map.getLong(), map.getLong(), map.getLong(), map.getLong())) break;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface SubsetVisitor
+    {
+        // Return false to stop the enumeration
+        boolean visit(long residualLo, long residualHi, long clickLo, long clickHi);
+    }
+
+    // Visits every subset of `size` clicks drawn from [from, to), with the XOR of their adjacency masks
+    static boolean enumerate(int size, int from, int to, SubsetVisitor visitor)
+    {
+        return enumerateFrom(size, from, to, 0L, 0L, 0L, 0L, visitor);
+    }
+
+    private static boolean enumerateFrom(int remaining, int from, int to, long lo, long hi, long clickLo, long clickHi, SubsetVisitor visitor)
+    {
+        if (remaining == 0) return visitor.visit(lo, hi, clickLo, clickHi);
+
+        for (int cell = from; cell <= to - remaining; cell++)
+        {
+            long bitLo = (cell < 64) ? (1L << cell) : 0L;
+            long bitHi = (cell < 64) ? 0L : (1L << (cell - 64));
+            if (!enumerateFrom(remaining - 1, cell + 1, to, lo ^ ADJ_LO[cell], hi ^ ADJ_HI[cell], clickLo | bitLo, clickHi | bitHi, visitor))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open-addressing hash table from a 128-bit residual to the click mask of the left half with the lowest last click.
+     * Stored as four parallel primitive arrays, with a zero click mask marking an empty slot.
+     */
+    static final class ResidualTable
+    {
+        final long[] keyLo, keyHi, clickLo, clickHi;
+        private final int mask;
+        private int size = 0;
+
+        ResidualTable(int capacity)
+        {
+            this.keyLo = new long[capacity];
+            this.keyHi = new long[capacity];
+            this.clickLo = new long[capacity];
+            this.clickHi = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void putIfLowerMax(long kLo, long kHi, long cLo, long cHi)
+        {
+            int slot = (int) hash(kLo, kHi) & mask;
+            while (clickLo[slot] != 0L || clickHi[slot] != 0L)
+            {
+                if (keyLo[slot] == kLo && keyHi[slot] == kHi)
+                {
+                    if (highestBit(cLo, cHi) < highestBit(clickLo[slot], clickHi[slot]))
+                    {
+                        clickLo[slot] = cLo;
+                        clickHi[slot] = cHi;
+                    }
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keyLo[slot] = kLo;
+            keyHi[slot] = kHi;
+            clickLo[slot] = cLo;
+            clickHi[slot] = cHi;
+            size++;
+        }
+
+        int find(long kLo, long kHi)
+        {
+            int slot = (int) hash(kLo, kHi) & mask;
+            while (clickLo[slot] != 0L || clickHi[slot] != 0L)
+            {
+                if (keyLo[slot] == kLo && keyHi[slot] == kHi) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Buffers entries per partition and appends them to the partition's spill file.
+     * The partition is chosen from the high bits of the hash so it stays independent of the slot index used by ResidualTable.
+     */
+    private static final class SpillWriter implements AutoCloseable
+    {
+        private final FileChannel[] channels;
+        private final ByteBuffer[] buffers;
+        private final int firstPartition;
+        private final int partitionShift;
+
+        // Opens the spill files for partitions [firstPartition, endPartition); entries for other partitions are skipped
+        SpillWriter(Path[] files, int firstPartition, int endPartition, int partitionShift) throws IOException
+        {
+            this.channels = new FileChannel[endPartition - firstPartition];
+            this.buffers = new ByteBuffer[endPartition - firstPartition];
+            this.firstPartition = firstPartition;
+            this.partitionShift = partitionShift;
+            for (int p = 0; p < channels.length; p++)
+            {
+                channels[p] = FileChannel.open(files[firstPartition + p], StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                buffers[p] = ByteBuffer.allocateDirect(SPILL_BUFFER_BYTES).order(ByteOrder.nativeOrder());
+            }
+        }
+
+        void write(long kLo, long kHi, long cLo, long cHi)
+        {
+            int p = ((partitionShift == 64) ? 0 : (int) (hash(kLo, kHi) >>> partitionShift)) - firstPartition;
+            if (p < 0 || p >= channels.length) return;
+
+            ByteBuffer buffer = buffers[p];
+            if (buffer.remaining() < ENTRY_BYTES) drain(p);
+            buffer.putLong(kLo).putLong(kHi).putLong(cLo).putLong(cHi);
+        }
+
+        private void drain(int p)
+        {
+            ByteBuffer buffer = buffers[p];
+            buffer.flip();
+            try
+            {
+                while (buffer.hasRemaining()) channels[p].write(buffer);
+            } catch (IOException e)
+            {
+                throw new RuntimeException("Failed to write MITM spill partition " + (firstPartition + p), e);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            for (int p = 0; p < channels.length; p++)
+            {
+                drain(p);
+                channels[p].close();
+            }
+        }
+    }
+
+    private static long hash(long lo, long hi)
+    {
+        long h = lo * 0x9E3779B97F4A7C15L ^ hi * 0xC2B2AE3D27D4EB4FL;
+        return h ^ (h >>> 31);
+    }
+
+    // Table capacity (power of two) that keeps the load factor at or below 1/2
+    private static long tableCapacityFor(long entries)
+    {
+        long capacity = Long.highestOneBit(Math.max(2L, entries * 2 - 1)) << 1;
+        return Math.max(capacity, 2L);
+    }
+
+    private static int highestBit(long lo, long hi)
+    {
+        return (hi != 0L) ? 127 - Long.numberOfLeadingZeros(hi) : 63 - Long.numberOfLeadingZeros(lo);
+    }
+
+    private static int lowestBit(long lo, long hi)
+    {
+        return (lo != 0L) ? Long.numberOfTrailingZeros(lo) : 64 + Long.numberOfTrailingZeros(hi);
+    }
+
+    static long binomial(int n, int k)
+    {
+        if (k < 0 || k > n) return 0L;
+        k = Math.min(k, n - k);
+        long result = 1L;
+        for (int i = 1; i <= k; i++)
+        {
+            result = Math.multiplyExact(result, n - k + i) / i;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.mrgarbagegamer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * A puzzle described in a small properties file instead of a Grid subclass, e.g.
+ * <pre>
+ * # Q22: the board clicking these cells leaves behind
+ * question = 22
+ * board = 7x16
+ * clicks = 101 104 107 110 113 301 304 307 310 313 501 504 507 510 513
+ * </pre>
+ * The starting board is every cell listed in lit switched on, then every cell in clicks clicked (both optional, in packed int format,
+ * separated by spaces or commas). board defaults to the standard 7x16 layout, question to 0.
+ * Definitions bundled under puzzles/q&lt;N&gt;.properties on the classpath are picked up by question number.
+ */
+public final class PuzzleDefinition
+{
+    public final int questionNumber;
+    public final BoardLayout layout;
+    private final long[] state; // layout.getWords() longs
+
+    private PuzzleDefinition(int questionNumber, BoardLayout layout, long[] state)
+    {
+        this.questionNumber = questionNumber;
+        this.layout = layout;
+        this.state = state;
+    }
+
+    public static PuzzleDefinition load(Path file) throws IOException
+    {
+        try (Reader reader = Files.newBufferedReader(file))
+        {
+            return parse(reader, file.toString());
+        }
+    }
+
+    /**
+     * The definition bundled for a question number, or null if there is none.
+     */
+    public static PuzzleDefinition bundled(int questionNumber) throws IOException
+    {
+        String resource = "puzzles/q" + questionNumber + ".properties";
+        InputStream in = PuzzleDefinition.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) return null;
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8))
+        {
+            return parse(reader, resource);
+        }
+    }
+
+    private static PuzzleDefinition parse(Reader reader, String source) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.load(reader);
+        try
+        {
+            int questionNumber = Integer.parseInt(properties.getProperty("question", "0").trim());
+            String board = properties.getProperty("board");
+            BoardLayout layout = (board == null) ? BoardLayout.STANDARD : BoardLayout.parse(board);
+
+            long[] state = layout.stateOf(cells(properties.getProperty("lit", "")));
+            for (int packed : cells(properties.getProperty("clicks", "")))
+            {
+                long[] toggled = layout.adjacencyMask(layout.packedToIndex(packed));
+                for (int w = 0; w < state.length; w++) state[w] ^= toggled[w];
+            }
+            return new PuzzleDefinition(questionNumber, layout, state);
+        } catch (IllegalArgumentException e)
+        {
+            throw new IOException("Malformed puzzle definition " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int[] cells(String list)
+    {
+        String trimmed = list.trim();
+        if (trimmed.isEmpty()) return new int[0];
+        String[] parts = trimmed.split("[\\s,]+");
+        int[] cells = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) cells[i] = Integer.parseInt(parts[i]);
+        return cells;
+    }
+
+    /**
+     * The starting board, layout.getWords() longs.
+     */
+    public long[] getState()
+    {
+        return state.clone();
+    }
+
+    /**
+     * Lit cells of the starting board in packed int format.
+     */
+    public int[] getLitCells()
+    {
+        int count = 0;
+        for (long word : state) count += Long.bitCount(word);
+        int[] cells = new int[count];
+        int i = 0;
+        for (int w = 0; w < state.length; w++)
+        {
+            for (long bits = state[w]; bits != 0; bits &= bits - 1)
+            {
+                cells[i++] = layout.indexToPacked((w << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * A Grid for the definition. Only the standard layout has one, other boards go to WideBoardSolver.
+     */
+    public Grid toGrid()
+    {
+        if (!layout.isStandard()) throw new IllegalStateException("Only " + BoardLayout.STANDARD + " boards have a Grid, not " + layout);
+        return new DefinedGrid(state);
+    }
+}
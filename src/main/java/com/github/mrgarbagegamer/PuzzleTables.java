@@ -0,0 +1,119 @@
+package com.github.mrgarbagegamer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The tables CombinationGenerator derives from a puzzle's starting board: the true cells, which of them each click toggles (one bit
+ * per true cell) and the OR of those masks over every suffix of the click order.
+ * They can be kept in a cache directory, one file per board named after its layout and state, and memory-mapped back by later runs
+ * of the same puzzle instead of being rebuilt.
+ */
+final class PuzzleTables
+{
+    private static final long MAGIC = 0x5044432d54424c31L; // "PDC-TBL1", bump the last byte when the layout changes
+
+    final long[] board; // Starting board {lo, hi}
+    final int[] trueCells; // Index format
+    final long[] clickMasks; // clickMasks[click]: true cells the click toggles
+    final long[] suffixMasks; // suffixMasks[i]: OR of clickMasks[i..], with a 0 sentinel at NUM_CELLS
+
+    private PuzzleTables(long[] board, int[] trueCells, long[] clickMasks, long[] suffixMasks)
+    {
+        this.board = board;
+        this.trueCells = trueCells;
+        this.clickMasks = clickMasks;
+        this.suffixMasks = suffixMasks;
+    }
+
+    /**
+     * Derives the tables of a board of the standard layout. The click masks have one bit per true cell, so at most 64 of them.
+     */
+    static PuzzleTables build(long[] board)
+    {
+        int[] trueCells = Grid.bitmaskToIndices(board[0], board[1]);
+        if (trueCells.length > 64) throw new IllegalArgumentException("The generator tables support at most 64 lit cells, not " + trueCells.length);
+
+        long[] clickMasks = new long[Grid.NUM_CELLS];
+        for (int click = 0; click < Grid.NUM_CELLS; click++)
+        {
+            long[] toggled = Grid.LAYOUT.adjacencyMask(click);
+            for (int i = 0; i < trueCells.length; i++)
+            {
+                if ((toggled[trueCells[i] >>> 6] & (1L << trueCells[i])) != 0) clickMasks[click] |= 1L << i;
+            }
+        }
+
+        long[] suffixMasks = new long[Grid.NUM_CELLS + 1];
+        for (int i = Grid.NUM_CELLS - 1; i >= 0; i--) suffixMasks[i] = suffixMasks[i + 1] | clickMasks[i];
+
+        return new PuzzleTables(board.clone(), trueCells, clickMasks, suffixMasks);
+    }
+
+    /**
+     * Maps the board's tables from the cache directory, building and saving them first if they are not there yet (or unreadable).
+     */
+    static PuzzleTables load(Path directory, long[] board) throws IOException
+    {
+        Path file = directory.resolve(String.format("%s-%016x%016x.tables", Grid.LAYOUT, board[1], board[0]));
+        if (Files.isRegularFile(file))
+        {
+            PuzzleTables tables = read(file);
+            if (tables != null && tables.board[0] == board[0] && tables.board[1] == board[1]) return tables;
+        }
+
+        PuzzleTables tables = build(board);
+        Files.createDirectories(directory);
+        tables.write(file);
+        return tables;
+    }
+
+    // Null if the file is not a table file of this version
+    private static PuzzleTables read(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < 5 * Long.BYTES || in.getLong() != MAGIC || in.getLong() != Grid.NUM_CELLS) return null;
+
+            long[] board = {in.getLong(), in.getLong()};
+            int numTrueCells = (int) in.getLong();
+            if (numTrueCells < 0 || numTrueCells > 64 || in.remaining() != (numTrueCells + 2 * Grid.NUM_CELLS + 1) * Long.BYTES) return null;
+
+            int[] trueCells = new int[numTrueCells];
+            for (int i = 0; i < numTrueCells; i++) trueCells[i] = (int) in.getLong();
+            long[] clickMasks = new long[Grid.NUM_CELLS];
+            in.asLongBuffer().get(clickMasks);
+            in.position(in.position() + Grid.NUM_CELLS * Long.BYTES);
+            long[] suffixMasks = new long[Grid.NUM_CELLS + 1];
+            in.asLongBuffer().get(suffixMasks);
+            return new PuzzleTables(board, trueCells, clickMasks, suffixMasks);
+        }
+    }
+
+    // Written through a temporary file, so concurrent runs never map half a table
+    private void write(Path file) throws IOException
+    {
+        ByteBuffer out = ByteBuffer.allocate((5 + trueCells.length + 2 * Grid.NUM_CELLS + 1) * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        out.putLong(MAGIC).putLong(Grid.NUM_CELLS).putLong(board[0]).putLong(board[1]).putLong(trueCells.length);
+        for (int cell : trueCells) out.putLong(cell);
+        for (long mask : clickMasks) out.putLong(mask);
+        for (long mask : suffixMasks) out.putLong(mask);
+        out.flip();
+
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+        {
+            while (out.hasRemaining()) channel.write(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.mrgarbagegamer;
+
+/**
+ * Work unit of [start, end) in the lexicographic ranks of all click combinations, see CombinationRanks.
+ * Every unit of a run holds the same number of combinations (give or take one), wherever it falls in the search.
+ */
+public class RankRange
+{
+    public final long start, end;
+
+    public RankRange(long start, long end)
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long size()
+    {
+        return end - start;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RankRange[" +
+                "start=" + start +
+                ", end=" + end +
+                ')';
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.mrgarbagegamer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Enumerates the combinations of a PrefixRange in revolving-door order (Knuth, TAOCP 7.2.1.3, Algorithm R).
+ * For a fixed first click, successive (k-1)-subsets of the remaining cells differ by swapping exactly one click out and one in,
+ * so the running 128-bit grid state is updated with two adjacency mask XORs per candidate instead of replaying all k clicks.
+ * Candidates are checked in place; there is nothing left for the consumers to do, so no WorkBatch is ever shipped.
+ */
+public class RevolvingDoorGenerator extends Thread
+{
+    private static final Logger logger = LogManager.getLogger(RevolvingDoorGenerator.class);
+
+    private static final int SOLUTION_CHECK_INTERVAL = 1 << 12; // Candidates between reads of the volatile solutionFound flag
+    static final int DONE = -1; // step() after the last subset
+
+    private static final long[] ADJ_LO = new long[Grid.NUM_CELLS];
+    private static final long[] ADJ_HI = new long[Grid.NUM_CELLS];
+
+    static
+    {
+        for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+        {
+            long[] mask = Grid.getAdjacencyMask(cell);
+            ADJ_LO[cell] = mask[0];
+            ADJ_HI[cell] = mask[1];
+        }
+    }
+
+    private final CombinationQueueArray queueArray;
+    private final int numClicks;
+    private final int firstClickStart, firstClickEnd;
+    private final long baseLo, baseHi;
+    private long candidatesTested = 0;
+    private final SolverMetrics.Counters counters; // Shared with every other generator this thread runs
+    private long published = 0; // Candidates this generator has added to counters so far
+
+    public RevolvingDoorGenerator(String threadName, CombinationQueueArray queueArray, int numClicks, int firstClickStart, int firstClickEnd, Grid baseGrid)
+    {
+        super(threadName);
+        this.queueArray = queueArray;
+        this.numClicks = numClicks;
+        this.firstClickStart = firstClickStart;
+        this.firstClickEnd = firstClickEnd;
+
+        long[] state = baseGrid.getGridState();
+        this.baseLo = state[0];
+        this.baseHi = state[1];
+        this.counters = queueArray.getMetrics().countersForCurrentThread(); // Generators run on the thread that creates them
+    }
+
+    @Override
+    public void run()
+    {
+        SolverEvents.PrefixRange event = new SolverEvents.PrefixRange();
+        event.begin();
+        Checkpoint checkpoint = queueArray.getCheckpoint();
+        for (int first = firstClickStart; first < firstClickEnd && !queueArray.solutionFound; first++)
+        {
+            if (checkpoint != null && checkpoint.isFirstClickDone(first)) continue; // Finished by an earlier run
+            searchFirstClick(first);
+            if (checkpoint != null && !queueArray.solutionFound) checkpoint.markFirstClickGenerated(first);
+        }
+        publishMetrics();
+        queueArray.addCandidates(candidatesTested);
+        event.start = firstClickStart;
+        event.end = firstClickEnd;
+        event.candidates = candidatesTested;
+        event.commit();
+        logger.info("Thread {} finished revolving-door enumeration of prefix range [{}-{}) ({} candidates)", getName(), firstClickStart, firstClickEnd, candidatesTested);
+    }
+
+    // Walks every combination whose smallest click is `first`
+    private void searchFirstClick(int first)
+    {
+        int t = numClicks - 1; // Clicks chosen from the cells after `first`
+        int offset = first + 1;
+        int n = Grid.NUM_CELLS - offset;
+        if (t < 0 || t > n) return;
+
+        long lo = baseLo ^ ADJ_LO[first];
+        long hi = baseHi ^ ADJ_HI[first];
+
+        // c[1..t] holds the current subset (relative to offset) in increasing order, c[t+1] and c[t+2] are sentinels
+        int[] c = new int[t + 3];
+        for (int j = 1; j <= t; j++)
+        {
+            c[j] = j - 1;
+            lo ^= ADJ_LO[offset + j - 1];
+            hi ^= ADJ_HI[offset + j - 1];
+        }
+        c[t + 1] = n;
+        c[t + 2] = n;
+
+        int sinceCheck = 0;
+        while (true)
+        {
+            candidatesTested++;
+            if ((lo | hi) == 0L)
+            {
+                SolutionSink sink = queueArray.getSolutionSink();
+                if (sink == null)
+                {
+                    reportSolution(first, c, t, offset);
+                    return;
+                }
+                recordSolution(sink, first, c, t, offset); // All-solutions mode: keep going
+            }
+            if (++sinceCheck == SOLUTION_CHECK_INTERVAL)
+            {
+                sinceCheck = 0;
+                publishMetrics();
+                if (queueArray.solutionFound) return;
+            }
+
+            int swap = step(c, t, n);
+            if (swap == DONE) return;
+            int out = swap >>> 16, in = swap & 0xFFFF;
+
+            lo ^= ADJ_LO[offset + out] ^ ADJ_LO[offset + in];
+            hi ^= ADJ_HI[offset + out] ^ ADJ_HI[offset + in];
+        }
+    }
+
+    /**
+     * Moves c[1..t] (a t-subset of [0, n) in increasing order, with sentinels c[t+1] = c[t+2] = n) to the next subset in
+     * revolving-door order.
+     * @return The element that left and the one that entered as (out << 16) | in, or DONE after the last subset.
+     */
+    static int step(int[] c, int t, int n)
+    {
+        int out;
+        if (t <= 1)
+        {
+            // Zero or one free click: plain linear scan, which is trivially a revolving door
+            if (t == 0 || c[1] + 1 >= n) return DONE;
+            out = c[1];
+            return (out << 16) | ++c[1];
+        }
+
+        // Algorithm R, step R3: moving c[1] is almost every step, so it stays small enough to inline into the search loop
+        if ((t & 1) == 1)
+        {
+            if (c[1] + 1 < c[2])
+            {
+                out = c[1];
+                return (out << 16) | ++c[1];
+            }
+        }
+        else if (c[1] > 0)
+        {
+            out = c[1];
+            return (out << 16) | --c[1];
+        }
+        return stepHigher(c, t);
+    }
+
+    // Algorithm R, steps R4-R6: moves some c[j] with j >= 2
+    private static int stepHigher(int[] c, int t)
+    {
+        boolean tryDecrease = (t & 1) == 1;
+        for (int j = 2; ; )
+        {
+            if (tryDecrease) // R4: try to decrease c[j]
+            {
+                if (c[j] >= j)
+                {
+                    int out = c[j];
+                    c[j] = c[j - 1];
+                    c[j - 1] = j - 2;
+                    return (out << 16) | (j - 2);
+                }
+                j++;
+                tryDecrease = false;
+            }
+            else // R5: try to increase c[j]
+            {
+                if (c[j] + 1 < c[j + 1])
+                {
+                    int out = c[j - 1];
+                    c[j - 1] = c[j];
+                    c[j] = c[j] + 1;
+                    return (out << 16) | c[j];
+                }
+                j++;
+                if (j > t) return DONE; // R6: every subset has been visited
+                tryDecrease = true;
+            }
+        }
+    }
+
+    // Every candidate is both generated and tested against the full grid state here
+    private void publishMetrics()
+    {
+        long delta = candidatesTested - published;
+        counters.add(SolverMetrics.Counter.Generated, delta);
+        counters.add(SolverMetrics.Counter.Tested, delta);
+        published = candidatesTested;
+    }
+
+    private static void recordSolution(SolutionSink sink, int first, int[] c, int t, int offset)
+    {
+        long lo = 0L, hi = 0L;
+        for (int j = 0; j <= t; j++)
+        {
+            int click = (j == 0) ? first : offset + c[j];
+            if (click < 64) lo |= 1L << click; else hi |= 1L << (click - 64);
+        }
+        sink.add(lo, hi);
+    }
+
+    private void reportSolution(int first, int[] c, int t, int offset)
+    {
+        int[] combination = new int[t + 1];
+        combination[0] = first;
+        for (int j = 1; j <= t; j++)
+        {
+            combination[j] = offset + c[j];
+        }
+        logger.info("Found the solution as the following click combination: {}", new CombinationMessage(combination.clone(), Grid.ValueFormat.Index));
+        queueArray.solutionFound(getName(), combination);
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.mrgarbagegamer;
+
+/**
+ * One process's slice of a brute-force search when a question is fanned out over several machines with --shard=i/n.
+ * The slices are contiguous runs of two-click prefixes (ranked like Checkpoint prefixes) in DFS order, cut so that each holds about the
+ * same number of leaves: prefix (a, b) has C(NUM_CELLS - 1 - b, k - 2) leaves, so the early prefixes weigh far more than the late
+ * ones and a split by first click would leave the first shard with most of the work. Every process computes the same plan from
+ * (numClicks, firstClickEnd, n) alone, so no coordination is needed.
+ */
+public final class Shard
+{
+    public final int index, count;
+    private final long[] owned = new long[(Checkpoint.NUM_PREFIXES + 63) >>> 6];
+    private final int firstClickStart, firstClickEnd; // First clicks of the owned prefixes, [start, end)
+    private final double weight; // Leaves in the owned prefixes, before pruning
+
+    private Shard(int index, int count, int numClicks, int prefixEnd)
+    {
+        this.index = index;
+        this.count = count;
+
+        double total = 0;
+        for (int first = 0; first < prefixEnd; first++)
+        {
+            for (int second = first + 1; second < Grid.NUM_CELLS; second++) total += leaves(second, numClicks);
+        }
+
+        // A prefix goes to the shard its weight midpoint falls into, which keeps the runs contiguous and the plan deterministic
+        double before = 0, mine = 0;
+        int start = prefixEnd, end = 0;
+        for (int first = 0; first < prefixEnd; first++)
+        {
+            for (int second = first + 1; second < Grid.NUM_CELLS; second++)
+            {
+                double w = leaves(second, numClicks);
+                int shard = (int) Math.min(count - 1, Math.floor((before + w / 2) * count / total));
+                before += w;
+                if (shard != index) continue;
+
+                int prefix = Checkpoint.prefixOf(first, second);
+                owned[prefix >>> 6] |= 1L << prefix;
+                mine += w;
+                start = Math.min(start, first);
+                end = first + 1;
+            }
+        }
+        this.firstClickStart = Math.min(start, end);
+        this.firstClickEnd = end;
+        this.weight = mine;
+    }
+
+    /**
+     * Plans the slice of shard index out of count for a search of numClicks clicks over first clicks [0, prefixEnd).
+     */
+    public static Shard plan(int index, int count, int numClicks, int prefixEnd)
+    {
+        if (count < 1 || index < 0 || index >= count) throw new IllegalArgumentException("Shard " + index + "/" + count + " out of range");
+        if (numClicks < 3) throw new IllegalArgumentException("Sharding needs at least 3 clicks");
+        return new Shard(index, count, numClicks, prefixEnd);
+    }
+
+    // Leaves under a two-click prefix whose second click is `second`: the remaining k - 2 clicks come from the cells after it
+    private static double leaves(int second, int numClicks)
+    {
+        int n = Grid.NUM_CELLS - 1 - second, r = numClicks - 2;
+        if (r > n) return 0;
+        double c = 1;
+        for (int i = 1; i <= r; i++) c = c * (n - r + i) / i;
+        return c;
+    }
+
+    public boolean owns(int prefix)
+    {
+        return (owned[prefix >>> 6] & (1L << prefix)) != 0;
+    }
+
+    /**
+     * Smallest first click of an owned prefix. Generators only need to cover [getFirstClickStart(), getFirstClickEnd()).
+     */
+    public int getFirstClickStart()
+    {
+        return firstClickStart;
+    }
+
+    public int getFirstClickEnd()
+    {
+        return firstClickEnd;
+    }
+
+    /**
+     * Number of combinations in the owned prefixes before any pruning.
+     */
+    public double getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.mrgarbagegamer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Summary a sharded run leaves behind for the merge step: which shard of which search it was, how far it got and what it found.
+ * Stored as a small properties file so it can be read (and fixed up) by hand on the cluster.
+ */
+public final class ShardResult
+{
+    public enum Status
+    {
+        Running, // Written at startup, so a shard that died leaves this behind
+        Complete, // Every owned prefix was searched without finding a solution
+        Solved // A solution was found (the rest of the shard was abandoned)
+    }
+
+    public final int questionNumber, numClicks;
+    public final int shardIndex, shardCount;
+    public final int prefixEnd; // First clicks the plan was made over, so shards of mismatched plans are refused
+    public Status status = Status.Running;
+    public long candidates = 0;
+    public long elapsedMillis = 0;
+    public final List<int[]> solutions = new ArrayList<>(); // Index format
+    public long solutionCount = 0; // Solutions streamed to a file in --all mode, which are not listed in solutions
+
+    public ShardResult(int questionNumber, int numClicks, int shardIndex, int shardCount, int prefixEnd)
+    {
+        this.questionNumber = questionNumber;
+        this.numClicks = numClicks;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.prefixEnd = prefixEnd;
+    }
+
+    /**
+     * True if the two results are shards of the same planned search.
+     */
+    public boolean isSameSearch(ShardResult other)
+    {
+        return questionNumber == other.questionNumber && numClicks == other.numClicks
+               && shardCount == other.shardCount && prefixEnd == other.prefixEnd;
+    }
+
+    public static Path defaultFile(int questionNumber, int numClicks, Shard shard)
+    {
+        return Paths.get(String.format("q%d-k%d-shard-%d-of-%d.properties", questionNumber, numClicks, shard.index, shard.count));
+    }
+
+    /**
+     * Writes the result through a temporary file, so a reader never sees half of it.
+     */
+    public void write(Path file) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("question", Integer.toString(questionNumber));
+        properties.setProperty("clicks", Integer.toString(numClicks));
+        properties.setProperty("shard", Integer.toString(shardIndex));
+        properties.setProperty("shards", Integer.toString(shardCount));
+        properties.setProperty("prefixEnd", Integer.toString(prefixEnd));
+        properties.setProperty("status", status.name());
+        properties.setProperty("candidates", Long.toString(candidates));
+        properties.setProperty("elapsedMillis", Long.toString(elapsedMillis));
+        properties.setProperty("solutions", Integer.toString(solutions.size()));
+        properties.setProperty("solutionCount", Long.toString(solutionCount));
+        for (int i = 0; i < solutions.size(); i++)
+        {
+            StringBuilder cells = new StringBuilder();
+            for (int cell : solutions.get(i))
+            {
+                if (cells.length() > 0) cells.append(' ');
+                cells.append(cell);
+            }
+            properties.setProperty("solution." + i, cells.toString());
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp))
+        {
+            properties.store(writer, "Shard " + shardIndex + "/" + shardCount + " of Q" + questionNumber + " in " + numClicks + " clicks");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ShardResult read(Path file) throws IOException
+    {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file))
+        {
+            properties.load(reader);
+        }
+
+        try
+        {
+            ShardResult result = new ShardResult(intProperty(properties, "question"), intProperty(properties, "clicks"),
+                                                 intProperty(properties, "shard"), intProperty(properties, "shards"),
+                                                 intProperty(properties, "prefixEnd"));
+            result.status = Status.valueOf(properties.getProperty("status", Status.Running.name()));
+            result.candidates = Long.parseLong(properties.getProperty("candidates", "0"));
+            result.elapsedMillis = Long.parseLong(properties.getProperty("elapsedMillis", "0"));
+            result.solutionCount = Long.parseLong(properties.getProperty("solutionCount", "0"));
+            for (int i = 0, count = intProperty(properties, "solutions"); i < count; i++)
+            {
+                String[] cells = properties.getProperty("solution." + i, "").trim().split("\\s+");
+                int[] solution = new int[cells.length];
+                for (int j = 0; j < cells.length; j++) solution[j] = Integer.parseInt(cells[j]);
+                result.solutions.add(solution);
+            }
+            return result;
+        } catch (IllegalArgumentException e)
+        {
+            throw new IOException("Malformed shard result " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int intProperty(Properties properties, String key)
+    {
+        String value = properties.getProperty(key);
+        if (value == null) throw new IllegalArgumentException("missing " + key);
+        return Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.mrgarbagegamer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Multi-producer/multi-consumer ring of WorkBatches in a memory-mapped file, shared by every solver JVM on a host.
+ * Slots use the same sequence-number protocol as JCTools' MpmcArrayQueue (which backs CombinationQueue): a producer may fill slot
+ * i when its sequence equals the producer index, a consumer may empty it when the sequence equals index + 1, and indices are claimed with CAS.
+ * All cross-process accesses go through a byte-buffer VarHandle, so they carry the usual volatile/CAS semantics on the mapped memory.
+ *
+ * Besides the batches, the header holds the shared state that makes the processes behave like one run: a prefix counter that hands out
+ * first-click ranges to generator processes, the number of active generators, and the "solution found" flag with the winning click mask.
+ * The first process to open the file initializes it. The last process to finish a run marks it finished, and the next process to open
+ * the file starts a new run in it; a ring whose run never finished (a crashed or killed run) is refused while no generator is live.
+ */
+public final class SharedWorkRing implements Closeable
+{
+    private static final Logger logger = LogManager.getLogger(SharedWorkRing.class);
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long MAGIC = 0x5044433230313851L; // "PDC2018Q"
+
+    // Header layout, hot counters on separate cache lines
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SLOTS_OFFSET = 8;
+    private static final int BATCH_CAPACITY_OFFSET = 16;
+    private static final int PREFIX_END_OFFSET = 24;
+    private static final int NUM_CLICKS_OFFSET = 32;
+    private static final int QUESTION_OFFSET = 40;
+    private static final int PRODUCER_INDEX_OFFSET = 64;
+    private static final int CONSUMER_INDEX_OFFSET = 128;
+    private static final int NEXT_PREFIX_OFFSET = 192;
+    private static final int GENERATORS_ACTIVE_OFFSET = 256;
+    private static final int GENERATORS_REGISTERED_OFFSET = 264;
+    private static final int RUN_STATE_OFFSET = 272; // RUN_OPEN or RUN_FINISHED
+    private static final int SOLUTION_STATE_OFFSET = 320; // 0 = none, 1 = being written, 2 = published
+    private static final int SOLUTION_LO_OFFSET = 328;
+    private static final int SOLUTION_HI_OFFSET = 336;
+    private static final int HEADER_BYTES = 384;
+
+    private static final long RUN_OPEN = 0L;
+    private static final long RUN_FINISHED = 1L;
+
+    // Slot layout: sequence, combination count, then {lo, hi} pairs
+    private static final int SLOT_SEQUENCE = 0;
+    private static final int SLOT_COUNT = 8;
+    private static final int SLOT_MASKS = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final LongBuffer longs; // Same memory, for bulk copies of batch contents
+    private final long slots;
+    private final int batchCapacity;
+    private final int prefixEnd;
+    private final int slotBytes;
+
+    private SharedWorkRing(FileChannel channel, MappedByteBuffer buffer)
+    {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.longs = buffer.asLongBuffer();
+        this.slots = buffer.getLong(SLOTS_OFFSET);
+        this.batchCapacity = (int) buffer.getLong(BATCH_CAPACITY_OFFSET);
+        this.prefixEnd = (int) buffer.getLong(PREFIX_END_OFFSET);
+        this.slotBytes = slotBytes(batchCapacity);
+    }
+
+    /**
+     * Opens the ring file, creating and initializing it if no other process has done so yet, or if its last run has finished.
+     * Every process must agree on the puzzle, so the geometry stored in an existing file is checked against the arguments.
+     * @param prefixEnd One past the last first click that generators should claim.
+     * @param consumeOnly True if this process only consumes, so it may drain a run whose generators have all finished.
+     * @throws IllegalStateException If the file holds another puzzle's run, or a run that stopped without finishing.
+     */
+    public static SharedWorkRing open(Path file, int slots, int batchCapacity, int prefixEnd, int numClicks, int questionNumber, boolean consumeOnly) throws IOException
+    {
+        if (Integer.bitCount(slots) != 1) throw new IllegalArgumentException("Ring slots must be a power of two: " + slots);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            MappedByteBuffer buffer;
+            FileLock lock = channel.lock();
+            try
+            {
+                long size = HEADER_BYTES + (long) slots * slotBytes(batchCapacity);
+                if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("Ring of " + slots + " slots does not fit in one mapping");
+                MappedByteBuffer header = (channel.size() >= HEADER_BYTES) ? channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES) : null;
+                if (header != null) header.order(ByteOrder.nativeOrder());
+                boolean initialized = header != null && header.getLong(MAGIC_OFFSET) == MAGIC;
+                boolean finished = initialized && header.getLong(RUN_STATE_OFFSET) == RUN_FINISHED;
+
+                if (!initialized || finished)
+                {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                    buffer.order(ByteOrder.nativeOrder());
+                    initialize(buffer, slots, batchCapacity, prefixEnd, numClicks, questionNumber);
+                    logger.info("{} shared work ring {} ({} slots of {} combinations)", finished ? "Started a new run in" : "Created", file, slots, batchCapacity);
+                }
+                else
+                {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                    buffer.order(ByteOrder.nativeOrder());
+                    if (buffer.getLong(NUM_CLICKS_OFFSET) != numClicks || buffer.getLong(QUESTION_OFFSET) != questionNumber
+                        || buffer.getLong(BATCH_CAPACITY_OFFSET) != batchCapacity || buffer.getLong(PREFIX_END_OFFSET) != prefixEnd)
+                    {
+                        throw new IllegalStateException("Shared work ring " + file + " belongs to a different run (Q" + buffer.getLong(QUESTION_OFFSET)
+                                                        + ", " + buffer.getLong(NUM_CLICKS_OFFSET) + " clicks), delete it first");
+                    }
+                    if (isStale(buffer, prefixEnd, consumeOnly))
+                    {
+                        throw new IllegalStateException("Shared work ring " + file + " holds a run that stopped without finishing and has no live generator"
+                                                        + " (a crashed or killed run), delete it first");
+                    }
+                    logger.info("Attached to shared work ring {} ({} slots)", file, buffer.getLong(SLOTS_OFFSET));
+                }
+            } finally
+            {
+                lock.release();
+            }
+            return new SharedWorkRing(channel, buffer);
+        } catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // An open run that got somewhere but has no live generator, unless it is a completed generation that a consumer may still drain
+    private static boolean isStale(MappedByteBuffer buffer, int prefixEnd, boolean consumeOnly)
+    {
+        if ((long) LONGS.getVolatile(buffer, GENERATORS_ACTIVE_OFFSET) > 0) return false;
+
+        long registered = (long) LONGS.getVolatile(buffer, GENERATORS_REGISTERED_OFFSET);
+        long solutionState = (long) LONGS.getVolatile(buffer, SOLUTION_STATE_OFFSET);
+        if (consumeOnly && registered > 0 && solutionState == 0L && (long) LONGS.getVolatile(buffer, NEXT_PREFIX_OFFSET) >= prefixEnd) return false;
+        return registered > 0 || solutionState != 0L || (long) LONGS.getVolatile(buffer, PRODUCER_INDEX_OFFSET) != 0L;
+    }
+
+    private static void initialize(MappedByteBuffer buffer, int slots, int batchCapacity, int prefixEnd, int numClicks, int questionNumber)
+    {
+        LONGS.setVolatile(buffer, MAGIC_OFFSET, 0L); // Hide the previous run until the header is rewritten
+        buffer.putLong(SLOTS_OFFSET, slots);
+        buffer.putLong(BATCH_CAPACITY_OFFSET, batchCapacity);
+        buffer.putLong(PREFIX_END_OFFSET, prefixEnd);
+        buffer.putLong(NUM_CLICKS_OFFSET, numClicks);
+        buffer.putLong(QUESTION_OFFSET, questionNumber);
+        buffer.putLong(PRODUCER_INDEX_OFFSET, 0L);
+        buffer.putLong(CONSUMER_INDEX_OFFSET, 0L);
+        buffer.putLong(NEXT_PREFIX_OFFSET, 0L);
+        buffer.putLong(GENERATORS_ACTIVE_OFFSET, 0L);
+        buffer.putLong(GENERATORS_REGISTERED_OFFSET, 0L);
+        buffer.putLong(SOLUTION_STATE_OFFSET, 0L);
+        buffer.putLong(RUN_STATE_OFFSET, RUN_OPEN);
+
+        int slotBytes = slotBytes(batchCapacity);
+        for (long i = 0; i < slots; i++)
+        {
+            buffer.putLong((int) (HEADER_BYTES + i * slotBytes + SLOT_SEQUENCE), i);
+        }
+
+        // Publish the magic last so attaching processes never see a half-initialized ring
+        LONGS.setVolatile(buffer, MAGIC_OFFSET, MAGIC);
+        buffer.force();
+    }
+
+    private static int slotBytes(int batchCapacity)
+    {
+        int bytes = SLOT_MASKS + batchCapacity * 16;
+        return (bytes + 63) & ~63; // Keep every slot on its own cache lines
+    }
+
+    public int getBatchCapacity()
+    {
+        return batchCapacity;
+    }
+
+    /**
+     * Copies a batch into the ring.
+     * @return true if the batch was copied (the caller keeps ownership of it), false if the ring is full.
+     */
+    public boolean offer(WorkBatch batch)
+    {
+        if (batch.size() > batchCapacity) throw new IllegalArgumentException("Batch of " + batch.size() + " exceeds ring capacity " + batchCapacity);
+
+        long mask = slots - 1;
+        while (true)
+        {
+            long index = (long) LONGS.getVolatile(buffer, PRODUCER_INDEX_OFFSET);
+            int slot = slotOffset(index & mask);
+            long sequence = (long) LONGS.getAcquire(buffer, slot + SLOT_SEQUENCE);
+
+            if (sequence < index) return false; // The consumers have not emptied this slot yet: full
+            if (sequence == index && LONGS.compareAndSet(buffer, PRODUCER_INDEX_OFFSET, index, index + 1))
+            {
+                int count = batch.size();
+                buffer.putLong(slot + SLOT_COUNT, count);
+                longs.put((slot + SLOT_MASKS) >>> 3, batch.masks(), 0, count << 1);
+                LONGS.setRelease(buffer, slot + SLOT_SEQUENCE, index + 1);
+                return true;
+            }
+            // Another producer claimed the slot first, retry with the new index
+        }
+    }
+
+    /**
+     * Moves the next batch in the ring into the given (empty) batch.
+     * @return true if a batch was copied, false if the ring is empty.
+     */
+    public boolean poll(WorkBatch into)
+    {
+        long mask = slots - 1;
+        while (true)
+        {
+            long index = (long) LONGS.getVolatile(buffer, CONSUMER_INDEX_OFFSET);
+            int slot = slotOffset(index & mask);
+            long sequence = (long) LONGS.getAcquire(buffer, slot + SLOT_SEQUENCE);
+
+            if (sequence < index + 1) return false; // Not produced yet: empty
+            if (sequence == index + 1 && LONGS.compareAndSet(buffer, CONSUMER_INDEX_OFFSET, index, index + 1))
+            {
+                int count = (int) buffer.getLong(slot + SLOT_COUNT);
+                longs.get((slot + SLOT_MASKS) >>> 3, into.masks(), 0, count << 1);
+                into.setSize(count);
+                LONGS.setRelease(buffer, slot + SLOT_SEQUENCE, index + slots);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * True if every produced batch has been claimed by a consumer.
+     */
+    public boolean isEmpty()
+    {
+        return (long) LONGS.getVolatile(buffer, CONSUMER_INDEX_OFFSET) >= (long) LONGS.getVolatile(buffer, PRODUCER_INDEX_OFFSET);
+    }
+
+    private int slotOffset(long slot)
+    {
+        return (int) (HEADER_BYTES + slot * slotBytes);
+    }
+
+    /**
+     * Claims the next range of first clicks for a generator, shared across every process.
+     * @return The claimed range, or null once every first click has been handed out.
+     */
+    public PrefixRange claimPrefixRange(int chunkSize)
+    {
+        long start = (long) LONGS.getAndAdd(buffer, NEXT_PREFIX_OFFSET, (long) chunkSize);
+        if (start >= prefixEnd) return null;
+        return new PrefixRange((int) start, (int) Math.min(prefixEnd, start + chunkSize));
+    }
+
+    public void generatorStarted()
+    {
+        LONGS.getAndAdd(buffer, GENERATORS_REGISTERED_OFFSET, 1L);
+        LONGS.getAndAdd(buffer, GENERATORS_ACTIVE_OFFSET, 1L);
+    }
+
+    public void generatorFinished()
+    {
+        LONGS.getAndAdd(buffer, GENERATORS_ACTIVE_OFFSET, -1L);
+    }
+
+    /**
+     * True once some generator has run, none is running any more and every first click was handed out.
+     * A generator process that dies without calling generatorFinished() keeps this false.
+     */
+    public boolean isGenerationComplete()
+    {
+        return (long) LONGS.getVolatile(buffer, GENERATORS_REGISTERED_OFFSET) > 0
+            && (long) LONGS.getVolatile(buffer, GENERATORS_ACTIVE_OFFSET) == 0
+            && (long) LONGS.getVolatile(buffer, NEXT_PREFIX_OFFSET) >= prefixEnd;
+    }
+
+    /**
+     * Publishes a winning combination in Bitmask format. Only the first winner across all processes is kept.
+     * @return true if this call published the solution.
+     */
+    public boolean publishSolution(long lo, long hi)
+    {
+        if (!LONGS.compareAndSet(buffer, SOLUTION_STATE_OFFSET, 0L, 1L)) return false;
+        buffer.putLong(SOLUTION_LO_OFFSET, lo);
+        buffer.putLong(SOLUTION_HI_OFFSET, hi);
+        LONGS.setRelease(buffer, SOLUTION_STATE_OFFSET, 2L);
+        return true;
+    }
+
+    /**
+     * Returns the published winning combination ({lo, hi}), or null if none has been published yet.
+     */
+    public long[] getSolution()
+    {
+        if ((long) LONGS.getAcquire(buffer, SOLUTION_STATE_OFFSET) != 2L) return null;
+        return new long[] {buffer.getLong(SOLUTION_LO_OFFSET), buffer.getLong(SOLUTION_HI_OFFSET)};
+    }
+
+    /**
+     * Marks the run finished, so the next process to open the file starts a new one instead of attaching to this one.
+     * Call once the run has a solution or every generated batch has been evaluated.
+     */
+    public void finishRun()
+    {
+        LONGS.setVolatile(buffer, RUN_STATE_OFFSET, RUN_FINISHED);
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.mrgarbagegamer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collects every solution of an --all run and streams them to a file while the search goes on.
+ * Each thread that finds solutions gets its own single-producer ring of Bitmask-format slots, so recording a solution is two stores
+ * and a lazySet with no lock and no allocation. A background writer drains all rings into the file, either as raw 16-byte records
+ * (lo, hi, little-endian) or, for files ending in .ndjson/.json, one {"clicks":[...]} line per solution in packed int format.
+ */
+public final class SolutionSink implements Closeable
+{
+    private static final Logger logger = LogManager.getLogger(SolutionSink.class);
+
+    private static final int RING_SIZE = 1024; // Solutions per thread ring, a power of 2
+    private static final int MAX_RECORD_BYTES = 16 + 4 * Grid.NUM_CELLS; // Longest NDJSON line: every cell clicked, each as up to 3 digits and a comma
+
+    private final Path file;
+    private final boolean ndjson;
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private final AtomicLong found = new AtomicLong(); // Solutions recorded, exact
+    private long written = 0; // Solutions written, only touched by the writer
+    private final CopyOnWriteArrayList<Ring> rings = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Ring> localRing = ThreadLocal.withInitial(this::newRing);
+    private final Thread writer;
+    private volatile boolean closing = false;
+
+    // Single producer (the owning thread), single consumer (the writer)
+    private static final class Ring
+    {
+        final long[] slots = new long[RING_SIZE << 1];
+        final AtomicLong head = new AtomicLong(); // Next slot the writer reads
+        final AtomicLong tail = new AtomicLong(); // Next slot the owner writes
+    }
+
+    private SolutionSink(Path file, FileChannel channel)
+    {
+        this.file = file;
+        this.channel = channel;
+        String name = file.getFileName().toString();
+        this.ndjson = name.endsWith(".ndjson") || name.endsWith(".json");
+        this.writer = new Thread(this::drainLoop, "Solution-Writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Creates (or truncates) the output file and starts the writer thread.
+     */
+    public static SolutionSink open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        SolutionSink sink = new SolutionSink(file, channel);
+        sink.writer.start();
+        return sink;
+    }
+
+    private Ring newRing()
+    {
+        Ring ring = new Ring();
+        rings.add(ring);
+        return ring;
+    }
+
+    /**
+     * Records a solution in Bitmask format. Only blocks if this thread's ring is full and the writer has fallen behind.
+     */
+    public void add(long lo, long hi)
+    {
+        Ring ring = localRing.get();
+        long tail = ring.tail.get();
+        while (tail - ring.head.get() >= RING_SIZE)
+        {
+            Thread.onSpinWait();
+        }
+        int slot = (int) (tail & (RING_SIZE - 1)) << 1;
+        ring.slots[slot] = lo;
+        ring.slots[slot + 1] = hi;
+        found.incrementAndGet();
+        ring.tail.lazySet(tail + 1); // Publishes the slot to the writer
+        SolverEvents.solutionFound(lo, hi);
+    }
+
+    /**
+     * Number of solutions recorded so far.
+     */
+    public long getCount()
+    {
+        return found.get();
+    }
+
+    public Path getFile()
+    {
+        return file;
+    }
+
+    private void drainLoop()
+    {
+        try
+        {
+            while (true)
+            {
+                boolean last = closing; // Read before draining, so nothing added before close() can be missed
+                if (drainRings() == 0)
+                {
+                    if (last) break;
+                    flush();
+                    Thread.sleep(1);
+                }
+            }
+            flush();
+        } catch (IOException e)
+        {
+            logger.error("Could not write solutions to {}", file, e);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int drainRings() throws IOException
+    {
+        int drained = 0;
+        for (Ring ring : rings)
+        {
+            long head = ring.head.get(), tail = ring.tail.get();
+            for (; head < tail; head++)
+            {
+                int slot = (int) (head & (RING_SIZE - 1)) << 1;
+                write(ring.slots[slot], ring.slots[slot + 1]);
+                drained++;
+            }
+            ring.head.lazySet(head); // Hands the slots back to the owner
+        }
+        return drained;
+    }
+
+    private void write(long lo, long hi) throws IOException
+    {
+        if (out.remaining() < MAX_RECORD_BYTES) flush();
+        written++;
+        if (!ndjson)
+        {
+            out.putLong(lo).putLong(hi);
+            return;
+        }
+
+        putAscii("{\"clicks\":[");
+        boolean firstClick = true;
+        for (int w = 0; w < 2; w++)
+        {
+            for (long bits = (w == 0) ? lo : hi; bits != 0; bits &= bits - 1)
+            {
+                if (!firstClick) out.put((byte) ',');
+                firstClick = false;
+                putDecimal(Grid.indexToPacked((w << 6) + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        putAscii("]}\n");
+    }
+
+    private void putAscii(String text)
+    {
+        for (int i = 0; i < text.length(); i++) out.put((byte) text.charAt(i));
+    }
+
+    // Packed cell numbers are small and non-negative
+    private void putDecimal(int value)
+    {
+        int divisor = 1;
+        while (divisor * 10 <= value) divisor *= 10;
+        for (; divisor > 0; divisor /= 10)
+        {
+            out.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private void flush() throws IOException
+    {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+
+    /**
+     * Waits for every recorded solution to be written, then closes the file. Call once all producers are done.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        closing = true;
+        try
+        {
+            writer.join();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(true);
+        channel.close();
+        if (written != found.get()) logger.warn("Recorded {} solutions but wrote {} to {}", found.get(), written, file);
+    }
+}
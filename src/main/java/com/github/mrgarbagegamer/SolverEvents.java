@@ -0,0 +1,127 @@
+package com.github.mrgarbagegamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the search pipeline, all disabled by default.
+ * While disabled, begin()/commit() compile to nothing and the event objects are scalar-replaced, so instrumented paths cost nothing.
+ * Enable them per event when starting a recording (the + adds a setting the default configuration does not know about), e.g.
+ * jcmd &lt;pid&gt; JFR.start name=solver +com.github.mrgarbagegamer.BatchConsumed#enabled=true +com.github.mrgarbagegamer.ConsumerIdle#enabled=true
+ * or java -XX:StartFlightRecording:filename=solver.jfr,+com.github.mrgarbagegamer.PrefixRange#enabled=true,... and look at the
+ * threads' timelines in JMC.
+ */
+public final class SolverEvents
+{
+    private SolverEvents()
+    {
+    }
+
+    @Name("com.github.mrgarbagegamer.PrefixRange")
+    @Label("Prefix Range")
+    @Description("A generator searching the combinations whose first click is in [start, end)")
+    @Category({"PDC Solver", "Generator"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class PrefixRange extends Event
+    {
+        @Label("Start")
+        int start;
+
+        @Label("End")
+        int end;
+
+        @Label("Candidates")
+        long candidates;
+    }
+
+    @Name("com.github.mrgarbagegamer.BatchFlushed")
+    @Label("Batch Flushed")
+    @Description("A generator handed a WorkBatch to a consumer queue (-1 for the shared ring)")
+    @Category({"PDC Solver", "Generator"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class BatchFlushed extends Event
+    {
+        @Label("Size")
+        int size;
+
+        @Label("Queue")
+        int queue;
+    }
+
+    @Name("com.github.mrgarbagegamer.OfferBlocked")
+    @Label("Offer Blocked")
+    @Description("A generator waiting because every consumer queue was full")
+    @Category({"PDC Solver", "Generator"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class OfferBlocked extends Event
+    {
+        @Label("Size")
+        int size;
+
+        @Label("Failed Offers")
+        int failedOffers;
+    }
+
+    @Name("com.github.mrgarbagegamer.BatchConsumed")
+    @Label("Batch Consumed")
+    @Description("A consumer evaluating one WorkBatch taken from a queue (-1 for the shared ring)")
+    @Category({"PDC Solver", "Consumer"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class BatchConsumed extends Event
+    {
+        @Label("Size")
+        int size;
+
+        @Label("Queue")
+        int queue;
+
+        @Label("Stolen")
+        boolean stolen;
+    }
+
+    @Name("com.github.mrgarbagegamer.ConsumerIdle")
+    @Label("Consumer Idle")
+    @Description("A consumer finding no work anywhere and waiting until some shows up")
+    @Category({"PDC Solver", "Consumer"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class ConsumerIdle extends Event
+    {
+        @Label("Misses")
+        int misses; // Passes through the wait strategy
+    }
+
+    @Name("com.github.mrgarbagegamer.SolutionFound")
+    @Label("Solution Found")
+    @Category({"PDC Solver"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class SolutionFound extends Event
+    {
+        @Label("Clicks")
+        @Description("The solving combination in packed int format")
+        String clicks;
+    }
+
+    /**
+     * Records a solution in Bitmask format. The combination is only formatted when the event is enabled.
+     */
+    static void solutionFound(long lo, long hi)
+    {
+        SolutionFound event = new SolutionFound();
+        if (event.isEnabled())
+        {
+            event.clicks = new CombinationMessage(lo, hi).getFormattedMessage();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.github.mrgarbagegamer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Live counters of a run, readable at any time through JMX or a periodic log line.
+ * Every consumer and every generator thread owns one Counters stripe and is its only writer: it counts in plain local fields and
+ * publishes every batch or so with lazySet, so the hot loops never share a cache line or execute a locked instruction.
+ * Readers sum the stripes, which gives totals that are at most one publish interval behind.
+ */
+public final class SolverMetrics implements SolverMetricsMBean
+{
+    private static final Logger logger = LogManager.getLogger(SolverMetrics.class);
+
+    public enum Counter
+    {
+        Generated, // Leaf combinations enumerated by the generators
+        Pruned, // Interior DFS states cut by canPotentiallySatisfyConstraints or the symmetry check
+        Skipped, // Leaf combinations under pruned states (and other shards' or checkpointed prefixes), never enumerated one by one
+        ParityRejected, // Leaves dropped by the first-true-cell parity check (split) or the true-cell parity check (fused)
+        SymmetryRejected, // Leaves skipped because a mirror image of them is searched instead
+        Shipped, // Combinations handed to consumers in WorkBatches
+        Tested, // Combinations checked against the full grid state
+        Steals, // Batches a consumer took from another consumer's queue
+        StealMisses // Times a consumer found every queue empty
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    /**
+     * One writer's counters, padded by a cache line on each side so neighbouring stripes never share one.
+     */
+    public static final class Counters
+    {
+        private static final int PAD = 8; // Longs per 64-byte cache line
+
+        private final AtomicLongArray values = new AtomicLongArray(PAD + COUNTERS.length + PAD);
+
+        /**
+         * Publishes the owner's running total. Only the owning thread may call this.
+         */
+        public void set(Counter counter, long total)
+        {
+            values.lazySet(PAD + counter.ordinal(), total);
+        }
+
+        /**
+         * Adds to the owner's total. Only the owning thread may call this.
+         */
+        public void add(Counter counter, long delta)
+        {
+            int i = PAD + counter.ordinal();
+            values.lazySet(i, values.get(i) + delta);
+        }
+
+        long get(Counter counter)
+        {
+            return values.get(PAD + counter.ordinal());
+        }
+    }
+
+    private final CopyOnWriteArrayList<Counters> stripes = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Counters> threadStripes = ThreadLocal.withInitial(this::newCounters);
+    private final CombinationQueue[] queues;
+    private final WorkStealingDeque[] deques; // deques[i] belongs to the consumer of queues[i]
+    private final LongSupplier batchesInFlight;
+    private final long startNanos = System.nanoTime();
+    private volatile long totalCombinations = -1; // Leaves of the whole search, -1 if unknown
+
+    SolverMetrics(CombinationQueue[] queues, WorkStealingDeque[] deques, LongSupplier batchesInFlight)
+    {
+        this.queues = queues;
+        this.deques = deques;
+        this.batchesInFlight = batchesInFlight;
+    }
+
+    /**
+     * Registers a new stripe for one writer (generator or consumer).
+     */
+    public Counters newCounters()
+    {
+        Counters counters = new Counters();
+        stripes.add(counters);
+        return counters;
+    }
+
+    /**
+     * The calling thread's stripe, registered on first use. For writers that come and go on the same thread, such as the generator
+     * of each work unit, which must then publish with add() rather than set() since they share it.
+     */
+    public Counters countersForCurrentThread()
+    {
+        return threadStripes.get();
+    }
+
+    public long total(Counter counter)
+    {
+        long sum = 0;
+        for (Counters stripe : stripes) sum += stripe.get(counter);
+        return sum;
+    }
+
+    @Override
+    public long getCombinationsGenerated()
+    {
+        return total(Counter.Generated);
+    }
+
+    @Override
+    public long getStatesPruned()
+    {
+        return total(Counter.Pruned);
+    }
+
+    @Override
+    public long getParityRejected()
+    {
+        return total(Counter.ParityRejected);
+    }
+
+    @Override
+    public long getSymmetryRejected()
+    {
+        return total(Counter.SymmetryRejected);
+    }
+
+    @Override
+    public long getCombinationsShipped()
+    {
+        return total(Counter.Shipped);
+    }
+
+    @Override
+    public long getCombinationsTested()
+    {
+        return total(Counter.Tested);
+    }
+
+    @Override
+    public long getSteals()
+    {
+        return total(Counter.Steals);
+    }
+
+    @Override
+    public long getStealMisses()
+    {
+        return total(Counter.StealMisses);
+    }
+
+    @Override
+    public int[] getQueueDepths()
+    {
+        int[] depths = new int[queues.length];
+        for (int i = 0; i < queues.length; i++) depths[i] = queues[i].size() + deques[i].size();
+        return depths;
+    }
+
+    @Override
+    public int getTotalQueueDepth()
+    {
+        int total = 0;
+        for (int depth : getQueueDepths()) total += depth;
+        return total;
+    }
+
+    @Override
+    public long getBatchesInFlight()
+    {
+        return batchesInFlight.getAsLong(); // Queued plus being evaluated
+    }
+
+    @Override
+    public double getTestedPerSecond()
+    {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return (seconds > 0) ? getCombinationsTested() / seconds : 0;
+    }
+
+    /**
+     * Sets the number of leaf combinations the run covers once done, which turns the covered count into a percentage and an ETA.
+     */
+    public void setTotalCombinations(long total)
+    {
+        this.totalCombinations = total;
+    }
+
+    @Override
+    public long getTotalCombinations()
+    {
+        return totalCombinations;
+    }
+
+    @Override
+    public long getCombinationsCovered()
+    {
+        return total(Counter.Generated) + total(Counter.Skipped);
+    }
+
+    @Override
+    public double getPercentComplete()
+    {
+        long total = totalCombinations;
+        return (total > 0) ? 100.0 * getCombinationsCovered() / total : -1;
+    }
+
+    @Override
+    public long getEtaSeconds()
+    {
+        return (long) etaSeconds(getCombinationsCovered(), (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    // Remaining combinations at the average rate so far, -1 while unknown
+    private double etaSeconds(long covered, double seconds)
+    {
+        long total = totalCombinations;
+        if (total <= 0 || covered <= 0 || seconds <= 0) return -1;
+        return Math.max(0, total - covered) * seconds / covered;
+    }
+
+    /**
+     * Publishes these metrics through the platform MBean server. Failure only costs the JMX view, so it is logged and ignored.
+     */
+    public void registerMBean()
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.github.mrgarbagegamer:type=SolverMetrics"));
+        } catch (JMException e)
+        {
+            logger.warn("Could not register the SolverMetrics MBean", e);
+        }
+    }
+
+    /**
+     * Starts a daemon thread that logs throughput and queue depth every intervalMillis.
+     */
+    public Thread startReporter(long intervalMillis)
+    {
+        Thread reporter = new Thread(() -> {
+            long[] last = new long[COUNTERS.length];
+            long lastNanos = System.nanoTime();
+            while (!Thread.currentThread().isInterrupted())
+            {
+                try
+                {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                long now = System.nanoTime();
+                long[] current = new long[COUNTERS.length];
+                for (Counter counter : COUNTERS) current[counter.ordinal()] = total(counter);
+                logSummary(current, last, (now - lastNanos) / 1e9);
+                last = current;
+                lastNanos = now;
+            }
+        }, "Metrics-Reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+
+    /**
+     * Starts a daemon thread that logs logProgress() every intervalMillis.
+     */
+    public Thread startProgressReporter(long intervalMillis)
+    {
+        Thread reporter = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                try
+                {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                logProgress();
+            }
+        }, "Progress-Reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+
+    /**
+     * Logs how much of the search is covered, at what rate, and when it should be done at the average rate so far.
+     * Pruned subtrees count as covered, so the rate runs ahead of the candidates actually generated wherever pruning bites.
+     */
+    public void logProgress()
+    {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long covered = getCombinationsCovered();
+        long generated = total(Counter.Generated);
+        long total = totalCombinations;
+        if (total <= 0)
+        {
+            logger.info("Progress: {} combinations covered ({} generated, {}/s) in {}", human(covered), human(generated),
+                        human(generated / seconds), duration(seconds));
+            return;
+        }
+        logger.info("Progress: {}% of {} combinations covered ({} generated, {}/s), elapsed {}, ETA {}",
+                    String.format("%.2f", 100.0 * covered / total), human(total), human(generated), human(generated / seconds),
+                    duration(seconds), (covered > 0) ? duration(etaSeconds(covered, seconds)) : "unknown");
+    }
+
+    // 93784 -> "1d 2h 3m", 3725 -> "1h 2m 5s"
+    private static String duration(double seconds)
+    {
+        long s = (long) seconds;
+        long days = s / 86400, hours = (s / 3600) % 24, minutes = (s / 60) % 60;
+        if (days > 0) return String.format("%dd %dh %dm", days, hours, minutes);
+        if (hours > 0) return String.format("%dh %dm %ds", hours, minutes, s % 60);
+        if (minutes > 0) return String.format("%dm %ds", minutes, s % 60);
+        return String.format("%.1fs", seconds);
+    }
+
+    private void logSummary(long[] current, long[] last, double seconds)
+    {
+        int[] depths = getQueueDepths();
+        int totalDepth = 0, maxDepth = 0;
+        for (int depth : depths)
+        {
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        int generated = Counter.Generated.ordinal(), tested = Counter.Tested.ordinal();
+        logger.info("Generated {}/s ({} total), tested {}/s ({} total), pruned {} states, parity-rejected {}, shipped {}, steals {} (missed {}), queued {} batches (max {} in one queue)",
+                    human((current[generated] - last[generated]) / seconds), human(current[generated]),
+                    human((current[tested] - last[tested]) / seconds), human(current[tested]),
+                    human(current[Counter.Pruned.ordinal()]), human(current[Counter.ParityRejected.ordinal()]),
+                    human(current[Counter.Shipped.ordinal()]), current[Counter.Steals.ordinal()], current[Counter.StealMisses.ordinal()],
+                    totalDepth, maxDepth);
+    }
+
+    // 1234567 -> "1.23M"
+    private static String human(double value)
+    {
+        if (value >= 1e12) return String.format("%.2fT", value / 1e12);
+        if (value >= 1e9) return String.format("%.2fG", value / 1e9);
+        if (value >= 1e6) return String.format("%.2fM", value / 1e6);
+        if (value >= 1e3) return String.format("%.2fk", value / 1e3);
+        return String.format("%.0f", value);
+    }
+}
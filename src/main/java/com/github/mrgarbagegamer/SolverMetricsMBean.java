@@ -0,0 +1,39 @@
+package com.github.mrgarbagegamer;
+
+/**
+ * JMX view of SolverMetrics, registered as com.github.mrgarbagegamer:type=SolverMetrics. Totals are since the start of the run.
+ */
+public interface SolverMetricsMBean
+{
+    long getCombinationsGenerated();
+
+    long getStatesPruned();
+
+    long getParityRejected();
+
+    long getSymmetryRejected();
+
+    long getCombinationsShipped();
+
+    long getCombinationsTested();
+
+    long getSteals();
+
+    long getStealMisses();
+
+    int[] getQueueDepths();
+
+    int getTotalQueueDepth();
+
+    long getBatchesInFlight();
+
+    double getTestedPerSecond();
+
+    long getTotalCombinations();
+
+    long getCombinationsCovered();
+
+    double getPercentComplete();
+
+    long getEtaSeconds();
+}
@@ -0,0 +1,336 @@
+package com.github.mrgarbagegamer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Command line options for StartYourMonkeys.
+ * The first three positional arguments keep their historical meaning (numClicks, numThreads, questionNumber),
+ * and everything starting with "--" is treated as a named switch. With --merge, the remaining non-numeric arguments are shard result files.
+ */
+public final class SolverOptions
+{
+    private static final Logger logger = LogManager.getLogger(SolverOptions.class);
+
+    public enum Engine
+    {
+        BruteForce, // CombinationGenerator + TestClickCombination pipeline
+        Gf2, // LinearSolver (Gaussian elimination over GF(2))
+        MeetInTheMiddle, // MeetInTheMiddleSolver (split into two half-size searches joined through a hash table)
+        LightChasing // LightChaser (enumerate the first row, force the rest row by row)
+    }
+
+    public enum Enumeration
+    {
+        Lexicographic, // CombinationGenerator DFS, candidates shipped to the consumers in WorkBatches
+        RevolvingDoor // RevolvingDoorGenerator, candidates tested in place with two XORs each
+    }
+
+    public enum Partition
+    {
+        Rank, // Equal-sized RankRanges of the lexicographic combination order, see CombinationRanks
+        FirstClick // PrefixRanges of whole first clicks
+    }
+
+    public enum RingRole
+    {
+        Both, // Generate into and consume from the shared ring
+        Generate, // Only run generators
+        Consume // Only run consumers
+    }
+
+    public int numClicks = 10;
+    public int numThreads = 8;
+    public int questionNumber = 35;
+    public Engine engine = Engine.BruteForce;
+    public Enumeration enumeration = Enumeration.Lexicographic;
+    public boolean fused = false; // Generators evaluate leaves in place instead of shipping WorkBatches to consumers
+    public boolean forkJoin = false; // Lexicographic generation on a ForkJoinPool that splits DFS stacks on demand
+    public Partition partition = Partition.Rank; // How in-process lexicographic generation is cut into work units
+    public long mitmMemoryBytes = Runtime.getRuntime().maxMemory() / 2; // Budget for the in-memory MITM table
+    public Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+    public Path ringFile = null; // Shared-memory work ring for running several solver JVMs together, null to keep everything in-process
+    public RingRole ringRole = RingRole.Both;
+    public int ringSlots = 1024;
+    public Path checkpointFile = null; // Where search progress is checkpointed, null to disable
+    public boolean resume = false; // Skip the work recorded in checkpointFile
+    public long checkpointIntervalMillis = 60_000;
+    public boolean sharded = false; // --shard=i/n: search only slice i of n, see Shard
+    public int shardIndex = 0, shardCount = 1;
+    public Path shardOutput = null; // Where the shard summary goes, null for ShardResult.defaultFile()
+    public boolean merge = false; // Combine shard result files into one verdict instead of searching
+    public final List<Path> mergeFiles = new ArrayList<>();
+    public long metricsIntervalMillis = 0; // --metrics[=<s>]: log throughput and queue depth every interval, 0 to stay quiet
+    public long progressIntervalMillis = 60_000; // --progress=<s>: log percent complete and ETA every interval, 0 to only log it at the end
+    public boolean minimumClicks = false; // Search k = 1, 2, ... numClicks and stop at the first k with a solution
+    public boolean allSolutions = false; // Keep searching after the first solution and stream every one to solutionsFile
+    public Path solutionsFile = null; // Null for the default q<Q>-k<K>-solutions.ndjson, raw 16-byte records unless it ends in .ndjson/.json
+    public Path puzzleFile = null; // --puzzle=<file>: load the puzzle from a PuzzleDefinition file instead of a built-in Grid
+    public Path tableCacheDirectory = null; // --table-cache[=<dir>]: keep the generator's per-puzzle tables there, see PuzzleTables
+    public BoardLayout board = null; // --board=<rows>x<cols>: search a board of that size with WideBoardSolver, null for the standard board
+    public int[] litCells = null; // --lit=<cells>: lit cells of that board in packed int format, null to take the question's
+    public boolean symmetry = true; // Only search one combination per mirror orbit when the puzzle is symmetric, see Symmetry
+    public WaitStrategy.Kind waitStrategy = WaitStrategy.Kind.Backoff; // --wait=spin|yield|backoff|block: how idle threads wait
+
+    private SolverOptions()
+    {
+    }
+
+    public static SolverOptions parse(String[] args)
+    {
+        SolverOptions options = new SolverOptions();
+        int positional = 0;
+        List<String> nonNumeric = new ArrayList<>();
+
+        for (String arg : args)
+        {
+            if (arg.startsWith("--"))
+            {
+                options.parseSwitch(arg);
+                continue;
+            }
+
+            // retrieve the positional arguments if any, otherwise keep the default value
+            try
+            {
+                int value = Integer.parseInt(arg);
+                switch (positional)
+                {
+                    case 0: options.numClicks = value; break;
+                    case 1: options.numThreads = value; break;
+                    case 2: options.questionNumber = value; break;
+                    default: logger.warn("Ignoring extra argument: {}", arg);
+                }
+            } catch (NumberFormatException e)
+            {
+                nonNumeric.add(arg);
+                continue;
+            }
+            positional++;
+        }
+
+        for (String arg : nonNumeric)
+        {
+            if (options.merge) options.mergeFiles.add(Paths.get(arg));
+            else logger.warn("Ignoring non-numeric argument: {}", arg);
+        }
+
+        return options;
+    }
+
+    private void parseSwitch(String arg)
+    {
+        int eq = arg.indexOf('=');
+        String name = (eq == -1) ? arg.substring(2) : arg.substring(2, eq);
+        String value = (eq == -1) ? null : arg.substring(eq + 1);
+
+        switch (name)
+        {
+            case "engine":
+                engine = parseEngine(value);
+                break;
+            case "enumeration":
+                enumeration = parseEnumeration(value);
+                break;
+            case "fused":
+                fused = true;
+                break;
+            case "forkjoin":
+                forkJoin = true;
+                break;
+            case "mitm-memory":
+                mitmMemoryBytes = Long.parseLong(requireValue(name, value)) << 20; // Given in MB
+                break;
+            case "spill-dir":
+                spillDirectory = Paths.get(requireValue(name, value));
+                break;
+            case "ring":
+                ringFile = Paths.get(requireValue(name, value));
+                break;
+            case "ring-role":
+                ringRole = parseRingRole(value);
+                break;
+            case "ring-slots":
+                ringSlots = Integer.parseInt(requireValue(name, value));
+                break;
+            case "checkpoint":
+                checkpointFile = Paths.get(requireValue(name, value));
+                break;
+            case "resume":
+                resume = true;
+                break;
+            case "checkpoint-interval":
+                checkpointIntervalMillis = Long.parseLong(requireValue(name, value)) * 1000; // Given in seconds
+                break;
+            case "shard":
+                parseShard(requireValue(name, value));
+                break;
+            case "shard-output":
+                shardOutput = Paths.get(requireValue(name, value));
+                break;
+            case "metrics":
+                metricsIntervalMillis = (value == null) ? 1000 : (long) (Double.parseDouble(value) * 1000); // Given in seconds
+                break;
+            case "progress":
+                progressIntervalMillis = (long) (Double.parseDouble(requireValue(name, value)) * 1000); // Given in seconds
+                break;
+            case "min":
+                minimumClicks = true;
+                break;
+            case "all":
+                allSolutions = true;
+                if (value != null) solutionsFile = Paths.get(value);
+                break;
+            case "puzzle":
+                puzzleFile = Paths.get(requireValue(name, value));
+                break;
+            case "table-cache":
+                tableCacheDirectory = (value != null) ? Paths.get(value) : Paths.get(System.getProperty("java.io.tmpdir"), "pdc-tables");
+                break;
+            case "board":
+                board = BoardLayout.parse(requireValue(name, value));
+                break;
+            case "lit":
+                litCells = parseCells(requireValue(name, value));
+                break;
+            case "no-symmetry":
+                symmetry = false;
+                break;
+            case "wait":
+                waitStrategy = parseWaitStrategy(value);
+                break;
+            case "partition":
+                partition = parsePartition(value);
+                break;
+            case "merge":
+                merge = true;
+                if (value != null) for (String file : value.split(",")) mergeFiles.add(Paths.get(file));
+                break;
+            default:
+                logger.warn("Ignoring unknown switch: {}", arg);
+        }
+    }
+
+    private void parseShard(String value)
+    {
+        int slash = value.indexOf('/');
+        if (slash == -1) throw new IllegalArgumentException("--shard expects i/n, e.g. --shard=0/4");
+        shardIndex = Integer.parseInt(value.substring(0, slash).trim());
+        shardCount = Integer.parseInt(value.substring(slash + 1).trim());
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) throw new IllegalArgumentException("Shard " + value + " out of range");
+        sharded = true;
+    }
+
+    private static int[] parseCells(String value)
+    {
+        String[] parts = value.split(",");
+        int[] cells = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) cells[i] = Integer.parseInt(parts[i].trim());
+        return cells;
+    }
+
+    private static String requireValue(String name, String value)
+    {
+        if (value == null) throw new IllegalArgumentException("--" + name + " requires a value");
+        return value;
+    }
+
+    private static Engine parseEngine(String value)
+    {
+        if (value == null) throw new IllegalArgumentException("--engine requires a value (brute, gf2, mitm or chase)");
+
+        switch (value.toLowerCase())
+        {
+            case "brute":
+            case "bruteforce":
+                return Engine.BruteForce;
+            case "gf2":
+            case "linear":
+                return Engine.Gf2;
+            case "mitm":
+                return Engine.MeetInTheMiddle;
+            case "chase":
+                return Engine.LightChasing;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + value);
+        }
+    }
+
+    private static Enumeration parseEnumeration(String value)
+    {
+        if (value == null) throw new IllegalArgumentException("--enumeration requires a value (lex or gray)");
+
+        switch (value.toLowerCase())
+        {
+            case "lex":
+            case "lexicographic":
+                return Enumeration.Lexicographic;
+            case "gray":
+            case "revolving":
+                return Enumeration.RevolvingDoor;
+            default:
+                throw new IllegalArgumentException("Unknown enumeration order: " + value);
+        }
+    }
+
+    private static Partition parsePartition(String value)
+    {
+        if (value == null) throw new IllegalArgumentException("--partition requires a value (rank or first-click)");
+
+        switch (value.toLowerCase())
+        {
+            case "rank":
+                return Partition.Rank;
+            case "first-click":
+            case "prefix":
+                return Partition.FirstClick;
+            default:
+                throw new IllegalArgumentException("Unknown partition: " + value);
+        }
+    }
+
+    private static WaitStrategy.Kind parseWaitStrategy(String value)
+    {
+        if (value == null) throw new IllegalArgumentException("--wait requires a value (spin, yield, backoff or block)");
+
+        switch (value.toLowerCase())
+        {
+            case "spin":
+                return WaitStrategy.Kind.Spin;
+            case "yield":
+                return WaitStrategy.Kind.Yield;
+            case "backoff":
+            case "park":
+                return WaitStrategy.Kind.Backoff;
+            case "block":
+            case "signal":
+                return WaitStrategy.Kind.Block;
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy: " + value);
+        }
+    }
+
+    private static RingRole parseRingRole(String value)
+    {
+        if (value == null) throw new IllegalArgumentException("--ring-role requires a value (both, generate or consume)");
+
+        switch (value.toLowerCase())
+        {
+            case "both":
+                return RingRole.Both;
+            case "generate":
+            case "generator":
+                return RingRole.Generate;
+            case "consume":
+            case "consumer":
+                return RingRole.Consume;
+            default:
+                throw new IllegalArgumentException("Unknown ring role: " + value);
+        }
+    }
+}
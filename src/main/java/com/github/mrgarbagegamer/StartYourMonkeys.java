@@ -1,5 +1,12 @@
 package com.github.mrgarbagegamer;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -8,50 +15,59 @@ public class StartYourMonkeys
 {
     // Add a logger at the top of the class
     private static final Logger logger = LogManager.getLogger(StartYourMonkeys.class);
+    private static final int RANK_UNITS_PER_THREAD = 32; // Equal-sized units are cheap to seed, so plenty of them keep the tail short
 
     public static void main(String[] args) 
     {
         long startTime = System.currentTimeMillis(); // Start timer
 
-        int defaultNumClicks  = 10;
-        int defaultNumThreads = 8;
-        int defaultQuestionNumber = 35;
+        SolverOptions options = SolverOptions.parse(args);
 
-        int parsedNumClicks  = defaultNumClicks;
-        int parsedNumThreads = defaultNumThreads;
-        int parsedQuestionNumber = defaultQuestionNumber;
+        if (options.merge)
+        {
+            runMerge(options.mergeFiles);
+            LogManager.shutdown();
+            return;
+        }
 
-        // retrieve the arguments if any or set a default value
-        try 
+        PuzzleDefinition puzzle;
+        try
         {
-            parsedNumClicks  = Integer.parseInt(args[0]);
-            parsedNumThreads = Integer.parseInt(args[1]);
-            parsedQuestionNumber = Integer.parseInt(args[2]);
-        } catch (Exception e) 
+            puzzle = loadPuzzle(options);
+        } catch (IOException e)
         {
-            // Keep defaults
+            logger.error("Could not load the puzzle definition", e);
+            LogManager.shutdown();
+            return;
         }
+        Grid baseGrid = (puzzle != null && puzzle.layout.isStandard()) ? puzzle.toGrid() : createGrid(options.questionNumber);
 
-        final int numClicks = parsedNumClicks;
-        final int numThreads = parsedNumThreads;
-        final int questionNumber = parsedQuestionNumber;
-
-        // start generating different click combinations
-        Grid baseGrid;
-        
-        if (questionNumber == 35) 
+        if (options.board != null)
         {
-            baseGrid = new Grid35();
+            runWideBoard(baseGrid, options, startTime);
         }
-        else if (questionNumber == 13)
+        else if (options.engine == SolverOptions.Engine.LightChasing)
         {
-            baseGrid = new Grid13();
+            runLightChaser(baseGrid, options.questionNumber, options.numClicks, options.numThreads, startTime);
         }
-        else 
+        else if (options.engine == SolverOptions.Engine.MeetInTheMiddle)
+        {
+            runMeetInTheMiddle(baseGrid, options, startTime);
+        }
+        else if (options.engine != SolverOptions.Engine.Gf2 || !runLinearSolver(baseGrid, options.questionNumber, options.numClicks, startTime))
         {
-            baseGrid = new Grid22();
+            // Brute force, also where the GF(2) engine's null space is too large to enumerate
+            if (options.minimumClicks) runMinimumClicks(baseGrid, options, firstClickEnd(baseGrid), startTime);
+            else runBruteForce(baseGrid, options, startTime);
         }
+        LogManager.shutdown();
+    }
 
+    /**
+     * One past the last click a combination can start with: every solution clicks a neighbour of the first lit cell.
+     */
+    private static int firstClickEnd(Grid baseGrid)
+    {
         int[] trueAdjacents = baseGrid.findFirstTrueAdjacents(Grid.ValueFormat.Index); // Find the first true adjacents in index format
         int finalFirstTrueAdjacent = -1;
         // This will be the index of the last possible click that can be used to generate a valid combination, so assign prefixes only up to this index
@@ -62,44 +78,380 @@ public class StartYourMonkeys
                 }
             }
         }
+        return finalFirstTrueAdjacent + 1;
+    }
 
-        int numGeneratorThreads = numThreads;
-        int chunkSize = Math.max(1, (finalFirstTrueAdjacent + 1) / (numGeneratorThreads * 8)); // Make chunks small for better balance
+    /**
+     * The generator/consumer search and everything that shares its setup: fused, fork/join and revolving-door generation, shards,
+     * the shared work ring, checkpoints and --all.
+     */
+    private static void runBruteForce(Grid baseGrid, SolverOptions options, long startTime)
+    {
+        final int numClicks = options.numClicks;
+        final int numThreads = options.numThreads;
+        final int questionNumber = options.questionNumber;
+        final int firstClickEnd = firstClickEnd(baseGrid);
 
-        // Tell the queue how many generators we have on startup
-        CombinationQueueArray queueArray = new CombinationQueueArray(numThreads, numGeneratorThreads);
+        // Generators cover first clicks [rangeStart, rangeEnd), which a shard narrows down to the first clicks of its own prefixes
+        int rangeStart = 0, rangeEnd = firstClickEnd;
+        Shard shard = null;
+        ShardResult shardResult = null;
+        Path shardFile = null;
+        if (options.sharded)
+        {
+            if (options.enumeration != SolverOptions.Enumeration.Lexicographic || numClicks < 3)
+            {
+                // Revolving-door order walks whole first clicks, so it cannot skip another shard's two-click prefixes
+                logger.error("--shard needs lexicographic enumeration and at least 3 clicks");
+                return;
+            }
+            shard = Shard.plan(options.shardIndex, options.shardCount, numClicks, firstClickEnd);
+            rangeStart = shard.getFirstClickStart();
+            rangeEnd = shard.getFirstClickEnd();
+            logger.info("Shard {} covers first clicks [{}-{}), {} candidates before pruning", shard, rangeStart, rangeEnd, String.format("%.0f", shard.getWeight()));
 
-        // --- Dynamic generator work queue ---
-        int numChunks = ((finalFirstTrueAdjacent + 1) + chunkSize - 1) / chunkSize;
-        SpmcArrayQueue<PrefixRange> workQueue = new SpmcArrayQueue<>(numChunks + 1);
-        for (int i = 0; i < finalFirstTrueAdjacent + 1; i += chunkSize) 
+            shardResult = new ShardResult(questionNumber, numClicks, shard.index, shard.count, firstClickEnd);
+            shardFile = (options.shardOutput != null) ? options.shardOutput : ShardResult.defaultFile(questionNumber, numClicks, shard);
+            try
+            {
+                shardResult.write(shardFile); // Status Running until we get to the end
+            } catch (IOException e)
+            {
+                logger.error("Could not write shard result {}", shardFile, e);
+                return;
+            }
+        }
+
+        SharedWorkRing sharedRing = null;
+        if (options.ringFile != null)
+        {
+            try
+            {
+                sharedRing = SharedWorkRing.open(options.ringFile, options.ringSlots, CombinationGenerator.BATCH_SIZE, firstClickEnd, numClicks, questionNumber,
+                                                 options.ringRole == SolverOptions.RingRole.Consume);
+            } catch (IOException | IllegalStateException e)
+            {
+                logger.error("Could not open the shared work ring {}", options.ringFile, e);
+                return;
+            }
+        }
+
+        if (options.forkJoin && (options.enumeration != SolverOptions.Enumeration.Lexicographic || sharedRing != null))
         {
-            int end = Math.min(i + chunkSize, finalFirstTrueAdjacent + 1);
-            workQueue.offer(new PrefixRange(i, end));
+            logger.warn("--forkjoin only applies to in-process lexicographic enumeration, using prefix ranges instead");
         }
+        boolean forkJoin = options.forkJoin && options.enumeration == SolverOptions.Enumeration.Lexicographic && sharedRing == null;
+        boolean runGenerators = sharedRing == null || options.ringRole != SolverOptions.RingRole.Consume;
+        boolean runConsumers = options.enumeration == SolverOptions.Enumeration.Lexicographic && !options.fused
+                               && (sharedRing == null || options.ringRole != SolverOptions.RingRole.Generate);
+        int numGeneratorThreads = runGenerators ? numThreads : 0;
 
+        // Tell the queue how many generators we have on startup (the fork/join pool reports as a single generator, and so does the shared ring)
+        CombinationQueueArray queueArray = new CombinationQueueArray(numThreads, (forkJoin || sharedRing != null) ? 1 : numGeneratorThreads);
+        if (sharedRing != null)
+        {
+            queueArray.attachSharedRing(sharedRing);
+            startRingWatcher(sharedRing, queueArray);
+        }
+        if (shard != null) queueArray.attachShard(shard);
+        Symmetry symmetry = (options.enumeration == SolverOptions.Enumeration.Lexicographic) ? detectSymmetry(baseGrid, options) : null;
+        if (symmetry != null) queueArray.attachSymmetry(symmetry);
+        queueArray.attachWaitStrategy(WaitStrategy.create(options.waitStrategy));
+        queueArray.getMetrics().registerMBean();
+        if (options.metricsIntervalMillis > 0) queueArray.getMetrics().startReporter(options.metricsIntervalMillis);
+        if (runGenerators)
+        {
+            // Exact size of first clicks [rangeStart, rangeEnd), unknown on a ring where other processes search part of it
+            long totalBefore = CombinationRanks.count(numClicks, rangeStart), totalAfter = CombinationRanks.count(numClicks, rangeEnd);
+            if (sharedRing == null && totalBefore >= 0 && totalAfter >= 0) queueArray.getMetrics().setTotalCombinations(totalAfter - totalBefore);
+            if (options.progressIntervalMillis > 0) queueArray.getMetrics().startProgressReporter(options.progressIntervalMillis);
+        }
+
+        SolutionSink solutionSink = null;
+        if (options.allSolutions)
+        {
+            solutionSink = openSolutionSink(options, String.format("q%d-k%d-solutions.ndjson", questionNumber, numClicks));
+            if (solutionSink == null) return;
+            queueArray.attachSolutionSink(solutionSink);
+            logger.info("Collecting every solution to Q{} in {} clicks into {}", questionNumber, numClicks, solutionSink.getFile());
+        }
+
+        Checkpoint checkpoint = null;
+        if (options.resume && options.checkpointFile == null)
+        {
+            logger.warn("--resume needs --checkpoint=<file>, starting from scratch");
+        }
+        if (options.checkpointFile != null)
+        {
+            if (forkJoin || sharedRing != null || numClicks < 3)
+            {
+                // Checkpoints track two-click prefixes in DFS order, which fork/join splitting and ring copies do not preserve
+                logger.warn("Checkpointing needs at least 3 clicks and is not supported with --forkjoin or --ring, running without it");
+            }
+            else
+            {
+                try
+                {
+                    checkpoint = Checkpoint.open(options.checkpointFile, questionNumber, numClicks, options.resume);
+                } catch (IOException e)
+                {
+                    logger.error("Could not open checkpoint {}", options.checkpointFile, e);
+                    return;
+                }
+                queueArray.attachCheckpoint(checkpoint);
+                checkpoint.startWriter(options.checkpointIntervalMillis);
+            }
+        }
+
+        installPuzzleTables(baseGrid, options);
         int[] trueCells = baseGrid.findTrueCells(); // Find all true cells in index format
 
+        Thread[] generators;
+        if (forkJoin)
+        {
+            generators = new Thread[] {startForkJoinGenerator(baseGrid, options, queueArray, rangeStart, rangeEnd, trueCells)};
+        }
+        else
+        {
+            // In-process lexicographic runs cut the ranks into equal units. Shards, checkpoints and the ring all work in first clicks.
+            boolean rankPartition = options.partition == SolverOptions.Partition.Rank && options.enumeration == SolverOptions.Enumeration.Lexicographic
+                                    && sharedRing == null && shard == null && options.checkpointFile == null;
+            SpmcArrayQueue<RankRange> rankUnits = rankPartition ? partitionRanks(numClicks, rangeEnd, numThreads) : null;
+            generators = startGenerators(baseGrid, options, queueArray, sharedRing, rankUnits, rangeStart, rangeEnd, trueCells, numGeneratorThreads);
+        }
+
+        // Fused and revolving-door generators test their own candidates, so consumers are only needed for the split pipeline
+        Thread[] workers = runConsumers ? startConsumers(baseGrid, queueArray, numThreads) : generators;
+
+        // wait for our monkeys to finish working
+        for(int i=0; i < workers.length; i++)
+        {
+            try 
+            {
+                workers[i].join();
+            } catch (InterruptedException e) 
+            {
+                e.printStackTrace();
+            }
+        }
+        int[] winningCombination = queueArray.getWinningCombination();
+        if (runGenerators) queueArray.getMetrics().logProgress();
+        if (sharedRing != null) closeRing(sharedRing, winningCombination != null || (runConsumers && sharedRing.isGenerationComplete() && sharedRing.isEmpty()));
+        if (runConsumers && sharedRing == null && winningCombination == null)
+        {
+            SolverMetrics metrics = queueArray.getMetrics();
+            logger.debug("Consumers tested {} of {} shipped combinations", metrics.getCombinationsTested(), metrics.getCombinationsShipped());
+        }
+
+        if (solutionSink != null)
+        {
+            try
+            {
+                solutionSink.close(); // Every solver has stopped, so this writes out the last of the solutions
+            } catch (IOException e)
+            {
+                logger.error("Could not finish writing {}", solutionSink.getFile(), e);
+            }
+        }
+
+        if (checkpoint != null)
+        {
+            try
+            {
+                checkpoint.write();
+                logger.info("Checkpointed {} of {} two-click prefixes to {}", checkpoint.countDone(), Checkpoint.NUM_PREFIXES, options.checkpointFile);
+            } catch (IOException e)
+            {
+                logger.error("Could not write checkpoint {}", options.checkpointFile, e);
+            }
+        }
+
+        long elapsedMillis = System.currentTimeMillis() - startTime;
+        String elapsedFormatted = formatElapsedTime(elapsedMillis);
+
+        if (shardResult != null) finishShard(shard, shardResult, shardFile, queueArray, solutionSink, elapsedMillis);
+
+        // Sleep for 1 second to ensure the logger is flushed
+        try 
+        {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) 
+        {
+            e.printStackTrace();
+        }
+
+        logger.info("\n\n--------------------------------------\n");
+
+        if (winningCombination == null && sharedRing != null && !runConsumers && options.ringRole == SolverOptions.RingRole.Generate)
+        {
+            logger.info("Finished generating Q{} in {} clicks into {}, the consuming processes report the result.", questionNumber, numClicks, options.ringFile);
+            logger.info("Elapsed time: {}", elapsedFormatted);
+        }
+        else if (solutionSink != null)
+        {
+            logger.info("Found {} solution(s) to Q{} in {} clicks ({} candidates), written to {}", 
+                        solutionSink.getCount(), questionNumber, numClicks, queueArray.getCandidates(), solutionSink.getFile());
+            logger.info("Elapsed time: {}", elapsedFormatted);
+        }
+        else if (winningCombination == null) 
+        {
+            logger.info("No solution to Q{} in {} clicks was found.", questionNumber, numClicks);
+            logger.info("Elapsed time: {}", elapsedFormatted);
+        }
+        else
+        {
+            if (symmetry != null) reportMirrorImages(symmetry, winningCombination);
+            reportSolution(baseGrid, queueArray.getWinningMonkey(), winningCombination, elapsedFormatted);
+        }
+
+        logger.info("\n\n--------------------------------------\n");
+    }
+
+    /**
+     * Opens the --all output: the file given with it, otherwise defaultName in the working directory.
+     * @return null if it cannot be opened, which has been logged.
+     */
+    private static SolutionSink openSolutionSink(SolverOptions options, String defaultName)
+    {
+        Path solutionsFile = (options.solutionsFile != null) ? options.solutionsFile : Paths.get(defaultName);
+        try
+        {
+            return SolutionSink.open(solutionsFile);
+        } catch (IOException e)
+        {
+            logger.error("Could not open solutions file {}", solutionsFile, e);
+            return null;
+        }
+    }
+
+    // Rewrites the shard's result file, status Running until now, with what the search found
+    private static void finishShard(Shard shard, ShardResult shardResult, Path shardFile, CombinationQueueArray queueArray, SolutionSink solutionSink,
+                                    long elapsedMillis)
+    {
+        int[] winningCombination = queueArray.getWinningCombination();
+        shardResult.status = (winningCombination != null) ? ShardResult.Status.Solved : ShardResult.Status.Complete;
+        if (winningCombination != null) shardResult.solutions.add(winningCombination.clone());
+        if (solutionSink != null) shardResult.solutionCount = solutionSink.getCount();
+        shardResult.candidates = queueArray.getCandidates();
+        shardResult.elapsedMillis = elapsedMillis;
+        try
+        {
+            shardResult.write(shardFile);
+            logger.info("Wrote shard {} result ({}) to {}", shard, shardResult.status, shardFile);
+        } catch (IOException e)
+        {
+            logger.error("Could not write shard result {}", shardFile, e);
+        }
+    }
+
+    /**
+     * --forkjoin: one driver thread runs the whole search on the pool; tasks split their DFS stacks whenever a worker runs dry.
+     */
+    private static Thread startForkJoinGenerator(Grid baseGrid, SolverOptions options, CombinationQueueArray queueArray,
+                                                 int firstClickStart, int firstClickEnd, int[] trueCells)
+    {
+        Thread driver = new Thread(() -> {
+            ForkJoinPool pool = CombinationGeneratorTask.newPool(options.numThreads);
+            long candidates = CombinationGeneratorTask.generate(pool, queueArray, options.numClicks, firstClickStart, firstClickEnd, trueCells, options.fused ? baseGrid : null);
+            pool.shutdown();
+            queueArray.addCandidates(candidates);
+            logger.info("Fork/join generation of prefix range [{}-{}) finished ({} candidates)", firstClickStart, firstClickEnd, candidates);
+            queueArray.generatorFinished();
+        }, "Generator-Pool");
+        driver.start();
+        return driver;
+    }
+
+    /**
+     * Cuts ranks [0, count(numClicks, firstClickEnd)) into equal units for the generators to take in turn.
+     * @return null if the ranks do not fit in a long, so the generators split by first click instead.
+     */
+    private static SpmcArrayQueue<RankRange> partitionRanks(int numClicks, int firstClickEnd, int numThreads)
+    {
+        List<RankRange> units = CombinationRanks.partition(numClicks, firstClickEnd, numThreads * RANK_UNITS_PER_THREAD);
+        if (units == null)
+        {
+            logger.info("{} clicks have too many combinations to rank in a long, splitting by first click instead", numClicks);
+            return null;
+        }
+
+        SpmcArrayQueue<RankRange> rankUnits = new SpmcArrayQueue<>(units.size() + 1);
+        for (RankRange unit : units) rankUnits.offer(unit);
+        logger.info("Searching ranks [0-{}) in {} units of {} combinations", units.get(units.size() - 1).end, units.size(), units.get(0).size());
+        return rankUnits;
+    }
+
+    /**
+     * Starts the generator threads. Each one takes rank units while there are any, then first-click ranges: from the shared ring
+     * when there is one (shared with the other processes), otherwise from an in-process queue of [rangeStart, rangeEnd) in chunks.
+     * @param rankUnits null to split by first click only.
+     */
+    private static Thread[] startGenerators(Grid baseGrid, SolverOptions options, CombinationQueueArray queueArray, SharedWorkRing sharedRing,
+                                            SpmcArrayQueue<RankRange> rankUnits, int rangeStart, int rangeEnd, int[] trueCells, int numGeneratorThreads)
+    {
+        final int numClicks = options.numClicks;
+        int chunkSize = Math.max(1, (rangeEnd - rangeStart) / (options.numThreads * 8)); // Make chunks small for better balance
+
+        // --- Dynamic generator work queue ---
+        Supplier<PrefixRange> nextRange;
+        if (sharedRing != null)
+        {
+            nextRange = () -> sharedRing.claimPrefixRange(chunkSize);
+        }
+        else if (rankUnits != null)
+        {
+            nextRange = () -> null;
+        }
+        else
+        {
+            int numChunks = ((rangeEnd - rangeStart) + chunkSize - 1) / chunkSize;
+            SpmcArrayQueue<PrefixRange> workQueue = new SpmcArrayQueue<>(numChunks + 1);
+            for (int i = rangeStart; i < rangeEnd; i += chunkSize) 
+            {
+                int end = Math.min(i + chunkSize, rangeEnd);
+                workQueue.offer(new PrefixRange(i, end));
+            }
+            nextRange = workQueue::poll;
+        }
+
         // Start generator threads
+        Thread[] generators = new Thread[numGeneratorThreads];
         for (int t = 0; t < numGeneratorThreads; t++) 
         {
             String threadName = String.format("Generator-%d", t);
-            new Thread(() -> {
+            if (sharedRing != null) sharedRing.generatorStarted(); // Registered before starting so consumers never see a premature end
+            generators[t] = new Thread(() -> {
+                Grid fusedGrid = options.fused ? baseGrid.clone() : null; // Each fused generator tests on its own grid
+                RankRange unit;
+                while (rankUnits != null && !queueArray.solutionFound && (unit = rankUnits.poll()) != null)
+                {
+                    new CombinationGenerator(threadName, queueArray, numClicks, unit, trueCells, fusedGrid).run();
+                }
                 PrefixRange range;
-                while ((range = workQueue.poll()) != null && !queueArray.solutionFound) 
+                while (!queueArray.solutionFound && (range = nextRange.get()) != null) 
                 {
                     logger.info("{} - Processing prefix range [{}-{})", threadName, range.start, range.end); // TODO: Remove this line if too verbose
-                    CombinationGenerator cb = new CombinationGenerator(
-                        threadName, queueArray, numClicks,
-                        range.start, range.end, trueCells
-                    );
+                    Thread cb;
+                    if (options.enumeration == SolverOptions.Enumeration.RevolvingDoor)
+                    {
+                        cb = new RevolvingDoorGenerator(threadName, queueArray, numClicks, range.start, range.end, baseGrid);
+                    }
+                    else
+                    {
+                        cb = new CombinationGenerator(threadName, queueArray, numClicks, range.start, range.end, trueCells, fusedGrid);
+                    }
                     cb.run();
                 }
                 logger.info("{} - Exiting (work queue empty or solution found)", threadName);
-                queueArray.generatorFinished();
-            }, threadName).start();
+                if (sharedRing != null) sharedRing.generatorFinished(); else queueArray.generatorFinished();
+            }, threadName);
+            generators[t].start();
         }
+        return generators;
+    }
 
+    private static Thread[] startConsumers(Grid baseGrid, CombinationQueueArray queueArray, int numThreads)
+    {
         // create the numThreads to start playing the game
         TestClickCombination[] monkeys = new TestClickCombination[numThreads];
 
@@ -111,52 +463,506 @@ public class StartYourMonkeys
             monkeys[i] = new TestClickCombination(threadName, queueArray.getQueue(i), queueArray, baseGrid.clone());
             monkeys[i].start();
         }
+        return monkeys;
+    }
 
-        // wait for our monkeys to finish working
-        for(int i=0; i < numThreads; i++)
+    /**
+     * Finds the mirrors that fix the puzzle, so the generators can skip all but one combination per orbit.
+     * @return null if the puzzle has no symmetry or --no-symmetry was given.
+     */
+    private static Symmetry detectSymmetry(Grid baseGrid, SolverOptions options)
+    {
+        if (!options.symmetry) return null;
+
+        Symmetry symmetry = Symmetry.of(baseGrid);
+        if (symmetry == null)
         {
-            try 
+            logger.info("Q{} has no mirror symmetry, searching every combination", options.questionNumber);
+        }
+        else
+        {
+            logger.info("Q{} has a symmetry group of {}, searching one combination per orbit", options.questionNumber, symmetry);
+        }
+        return symmetry;
+    }
+
+    // The search only visits the canonical member of each orbit, so the solution's mirror images solve the puzzle too
+    private static void reportMirrorImages(Symmetry symmetry, int[] combination)
+    {
+        long[] mask = Grid.indicesToBitmask(combination);
+        long[] orbit = new long[symmetry.order() << 1];
+        for (int i = 1, count = symmetry.orbit(mask[0], mask[1], orbit); i < count; i++)
+        {
+            logger.info("Its mirror image {} is also a solution", new CombinationMessage(orbit[i << 1], orbit[(i << 1) + 1]));
+        }
+    }
+
+    /**
+     * Iterative deepening on the number of clicks: searches k = 1, 2, ... options.numClicks and stops at the first k with a solution.
+     * Every level runs fused on the same fork/join pool, so the workers, the JIT-compiled search and CombinationGenerator's static
+     * true-cell tables stay warm from one level to the next instead of being rebuilt by a fresh run per guess.
+     */
+    private static void runMinimumClicks(Grid baseGrid, SolverOptions options, int firstClickEnd, long startTime)
+    {
+        if (options.ringFile != null || options.sharded || options.checkpointFile != null || options.enumeration != SolverOptions.Enumeration.Lexicographic)
+        {
+            logger.warn("--min runs every level in-process with fused lexicographic enumeration, ignoring --ring, --shard, --checkpoint and --enumeration");
+        }
+
+        SolutionSink sink = null;
+        if (options.allSolutions)
+        {
+            sink = openSolutionSink(options, String.format("q%d-min-solutions.ndjson", options.questionNumber));
+            if (sink == null) return;
+        }
+
+        installPuzzleTables(baseGrid, options);
+        int[] trueCells = baseGrid.findTrueCells();
+        Symmetry symmetry = detectSymmetry(baseGrid, options);
+        ForkJoinPool pool = CombinationGeneratorTask.newPool(options.numThreads);
+        int[] winningCombination = null;
+        int solvedAt = -1;
+        for (int k = 1; k <= options.numClicks && solvedAt == -1; k++)
+        {
+            long levelStart = System.currentTimeMillis();
+            CombinationQueueArray queueArray = new CombinationQueueArray(1, 1); // Fused generators never ship batches
+            if (sink != null) queueArray.attachSolutionSink(sink);
+            if (symmetry != null) queueArray.attachSymmetry(symmetry);
+
+            long candidates = (k == 1) ? searchSingleClicks(baseGrid, queueArray, firstClickEnd)
+                                       : CombinationGeneratorTask.generate(pool, queueArray, k, 0, firstClickEnd, trueCells, baseGrid);
+            logger.info("Level {} - {} candidates in {}", k, candidates, formatElapsedTime(System.currentTimeMillis() - levelStart));
+
+            if (queueArray.getWinningCombination() != null || (sink != null && sink.getCount() > 0))
             {
-                monkeys[i].join();
-            } catch (InterruptedException e) 
+                winningCombination = queueArray.getWinningCombination();
+                solvedAt = k;
+            }
+        }
+        pool.shutdown();
+
+        if (sink != null)
+        {
+            try
             {
-                e.printStackTrace();
+                sink.close();
+            } catch (IOException e)
+            {
+                logger.error("Could not finish writing {}", sink.getFile(), e);
             }
         }
-        int[] winningCombination = queueArray.getWinningCombination();
+        String elapsedFormatted = formatElapsedTime(System.currentTimeMillis() - startTime);
 
-        long elapsedMillis = System.currentTimeMillis() - startTime;
-        String elapsedFormatted = formatElapsedTime(elapsedMillis);
+        logger.info("\n\n--------------------------------------\n");
 
-        // Sleep for 1 second to ensure the logger is flushed
-        try 
+        if (solvedAt == -1)
         {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) 
+            logger.info("No solution to Q{} in {} clicks or fewer was found.", options.questionNumber, options.numClicks);
+            logger.info("Elapsed time: {}", elapsedFormatted);
+        }
+        else if (sink != null)
         {
-            e.printStackTrace();
+            logger.info("Q{} needs at least {} clicks, found {} solution(s) with {} clicks, written to {}", 
+                        options.questionNumber, solvedAt, sink.getCount(), solvedAt, sink.getFile());
+            logger.info("Elapsed time: {}", elapsedFormatted);
+        }
+        else
+        {
+            logger.info("Q{} needs at least {} clicks.", options.questionNumber, solvedAt);
+            if (symmetry != null) reportMirrorImages(symmetry, winningCombination);
+            reportSolution(baseGrid, "Min", winningCombination, elapsedFormatted);
         }
 
         logger.info("\n\n--------------------------------------\n");
+    }
 
-        if (winningCombination == null) 
+    // Level 1 of --min, which the DFS cannot express (its leaves are at least two clicks deep)
+    private static long searchSingleClicks(Grid baseGrid, CombinationQueueArray queueArray, int firstClickEnd)
+    {
+        long[] state = baseGrid.getGridState();
+        for (int cell = 0; cell < firstClickEnd; cell++)
         {
-            logger.info("No solution to Q{} in {} clicks was found.", questionNumber, numClicks);
+            long[] mask = Grid.getAdjacencyMask(cell);
+            if (mask[0] != state[0] || mask[1] != state[1]) continue;
+
+            SolutionSink sink = queueArray.getSolutionSink();
+            if (sink != null)
+            {
+                sink.add(cell < 64 ? 1L << cell : 0L, cell < 64 ? 0L : 1L << (cell - 64));
+            }
+            else
+            {
+                queueArray.solutionFound("Min", new int[] {cell});
+                break;
+            }
+        }
+        return firstClickEnd;
+    }
+
+    /**
+     * Mirrors the shared ring's state into the local queue array: a solution published by any process stops this one,
+     * and generation counts as complete once every process's generators are done and the ring has been drained.
+     */
+    private static void startRingWatcher(SharedWorkRing ring, CombinationQueueArray queueArray)
+    {
+        Thread watcher = new Thread(() -> {
+            while (!queueArray.solutionFound)
+            {
+                long[] solution = ring.getSolution();
+                if (solution != null)
+                {
+                    queueArray.solutionFound("Ring", Grid.bitmaskToIndices(solution[0], solution[1]));
+                    break;
+                }
+                if (!queueArray.generationComplete && ring.isGenerationComplete() && ring.isEmpty())
+                {
+                    queueArray.generatorFinished();
+                }
+                try
+                {
+                    Thread.sleep(1);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }, "Ring-Watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Lets go of the shared ring, marking its run finished first if this process saw it end (a solution, or its consumers drained the
+     * ring after every generator was done). A process that only generated cannot tell, the consuming processes finish the run.
+     */
+    private static void closeRing(SharedWorkRing ring, boolean runEnded)
+    {
+        if (runEnded) ring.finishRun();
+        try
+        {
+            ring.close();
+        } catch (IOException e)
+        {
+            logger.warn("Could not close the shared work ring", e);
+        }
+    }
+
+    /**
+     * Combines the result files of a sharded run into one verdict: solved if any shard found a solution, unsolvable only if every
+     * shard of the plan reported Complete, otherwise incomplete with the shards still missing.
+     */
+    private static void runMerge(List<Path> files)
+    {
+        logger.info("\n\n--------------------------------------\n");
+
+        if (files.isEmpty())
+        {
+            logger.error("--merge needs the shard result files to combine");
+            return;
+        }
+
+        ShardResult[] shards = null;
+        ShardResult plan = null;
+        long candidates = 0, slowestMillis = 0, streamed = 0;
+        int present = 0;
+        int[] winner = null;
+        for (Path file : files)
+        {
+            ShardResult result;
+            try
+            {
+                result = ShardResult.read(file);
+            } catch (IOException e)
+            {
+                logger.error("Could not read shard result {}", file, e);
+                return;
+            }
+            if (plan == null)
+            {
+                plan = result;
+                shards = new ShardResult[result.shardCount];
+            }
+            if (!result.isSameSearch(plan) || result.shardIndex < 0 || result.shardIndex >= shards.length)
+            {
+                logger.error("{} is shard {}/{} of Q{} in {} clicks, which does not belong with shard {}/{} of Q{} in {} clicks",
+                             file, result.shardIndex, result.shardCount, result.questionNumber, result.numClicks,
+                             plan.shardIndex, plan.shardCount, plan.questionNumber, plan.numClicks);
+                return;
+            }
+            if (shards[result.shardIndex] != null) logger.warn("Shard {}/{} given twice, using {}", result.shardIndex, result.shardCount, file);
+            shards[result.shardIndex] = result;
+        }
+
+        StringBuilder missing = new StringBuilder();
+        for (int i = 0; i < shards.length; i++)
+        {
+            ShardResult result = shards[i];
+            if (result == null || result.status == ShardResult.Status.Running)
+            {
+                if (missing.length() > 0) missing.append(", ");
+                missing.append(i).append(result == null ? " (no result)" : " (did not finish)");
+                continue; // A shard that is still running may yet find the solution, so none of it counts as covered
+            }
+            present++;
+            candidates += result.candidates;
+            streamed += result.solutionCount;
+            slowestMillis = Math.max(slowestMillis, result.elapsedMillis);
+            for (int[] solution : result.solutions)
+            {
+                logger.info("Shard {}/{} - {}", i, shards.length, new CombinationMessage(solution.clone(), Grid.ValueFormat.Index));
+                if (winner == null) winner = solution.clone();
+            }
+        }
+        logger.info("Merged shards of Q{} in {} clicks: {} of {} finished, {} candidates, slowest shard took {}", 
+                    plan.questionNumber, plan.numClicks, present, shards.length, candidates, formatElapsedTime(slowestMillis));
+
+        if (streamed > 0)
+        {
+            logger.info("{} solution(s) were streamed to the shards' --all output files{}", streamed, 
+                        (missing.length() > 0) ? ", shards " + missing + " have not completed" : "");
+        }
+        else if (winner != null)
+        {
+            reportSolution(createGrid(plan.questionNumber), "Merge", winner, formatElapsedTime(slowestMillis));
+        }
+        else if (missing.length() > 0)
+        {
+            logger.info("Inconclusive: no solution so far, but shards {} have not completed.", missing);
+        }
+        else
+        {
+            logger.info("No solution to Q{} in {} clicks was found by any of the {} shards.", plan.questionNumber, plan.numClicks, shards.length);
+        }
+
+        logger.info("\n\n--------------------------------------\n");
+    }
+
+    /**
+     * Solves the puzzle exactly with the GF(2) engine.
+     * @return true if the engine produced an answer, false if the null space is too large and brute force should be used instead.
+     */
+    private static boolean runLinearSolver(Grid baseGrid, int questionNumber, int numClicks, long startTime)
+    {
+        LinearSolver solver = new LinearSolver(baseGrid);
+        if (!solver.isEnumerable())
+        {
+            logger.warn("Null space of dimension {} is too large for the GF(2) engine, falling back to brute force", solver.getNullity());
+            return false;
+        }
+
+        int[] minimumSolution = solver.findMinimumSolution();
+        List<int[]> solutions = solver.findSolutionsOfWeight(numClicks);
+        String elapsedFormatted = formatElapsedTime(System.currentTimeMillis() - startTime);
+
+        logger.info("\n\n--------------------------------------\n");
+
+        if (minimumSolution == null)
+        {
+            logger.info("Q{} has no solution for any number of clicks (null space dimension {}).", questionNumber, solver.getNullity());
             logger.info("Elapsed time: {}", elapsedFormatted);
             logger.info("\n\n--------------------------------------\n");
-            LogManager.shutdown();
+            return true;
+        }
+
+        logger.info("GF(2) - Minimum solution to Q{} uses {} clicks: {}", questionNumber, minimumSolution.length, 
+                    new CombinationMessage(minimumSolution.clone(), Grid.ValueFormat.Index));
+        logger.info("GF(2) - Found {} solution(s) to Q{} in exactly {} clicks (null space dimension {}).", 
+                    solutions.size(), questionNumber, numClicks, solver.getNullity());
+        for (int[] solution : solutions)
+        {
+            logger.info("GF(2) - {}", new CombinationMessage(solution.clone(), Grid.ValueFormat.Index));
+        }
+        reportSolution(baseGrid, "GF(2)", solutions.isEmpty() ? minimumSolution : solutions.get(0), elapsedFormatted);
+
+        logger.info("\n\n--------------------------------------\n");
+        return true;
+    }
+
+    private static void runLightChaser(Grid baseGrid, int questionNumber, int numClicks, int numThreads, long startTime)
+    {
+        List<long[]> solutions = new LightChaser(baseGrid, numThreads).findAllSolutions();
+        String elapsedFormatted = formatElapsedTime(System.currentTimeMillis() - startTime);
+
+        logger.info("\n\n--------------------------------------\n");
+
+        if (solutions.isEmpty())
+        {
+            logger.info("Q{} has no solution for any number of clicks.", questionNumber);
+            logger.info("Elapsed time: {}", elapsedFormatted);
+            logger.info("\n\n--------------------------------------\n");
+            return;
+        }
+
+        long[] minimum = null;
+        long[] withNumClicks = null;
+        for (long[] solution : solutions)
+        {
+            if (minimum == null || LightChaser.weight(solution) < LightChaser.weight(minimum)) minimum = solution;
+            if (LightChaser.weight(solution) == numClicks)
+            {
+                if (withNumClicks == null) withNumClicks = solution;
+                logger.info("Chase - {}", new CombinationMessage(Grid.bitmaskToIndices(solution[0], solution[1]), Grid.ValueFormat.Index));
+            }
+        }
+        logger.info("Chase - Found {} solution(s) to Q{}, minimum uses {} clicks.", solutions.size(), questionNumber, LightChaser.weight(minimum));
+
+        long[] winner = (withNumClicks != null) ? withNumClicks : minimum;
+        reportSolution(baseGrid, "Chase", Grid.bitmaskToIndices(winner[0], winner[1]), elapsedFormatted);
+
+        logger.info("\n\n--------------------------------------\n");
+    }
+
+    /**
+     * Brute force on a board of another size, with the given lit cells or the question's lit cells at the same packed positions.
+     */
+    private static void runWideBoard(Grid baseGrid, SolverOptions options, long startTime)
+    {
+        BoardLayout layout = options.board;
+        int[] litCells = (options.litCells != null) ? options.litCells : baseGrid.findTrueCells(Grid.ValueFormat.PackedInt);
+        long[] state;
+        try
+        {
+            state = layout.stateOf(litCells);
+        } catch (IllegalArgumentException e)
+        {
+            logger.error("Cannot set up the {} board: {}", layout, e.getMessage());
+            return;
+        }
+        if (options.engine != SolverOptions.Engine.BruteForce || options.fused || options.forkJoin || options.ringFile != null || options.sharded
+            || options.checkpointFile != null || options.allSolutions || options.minimumClicks)
+        {
+            logger.warn("--board only supports plain brute force, ignoring the other engine and mode switches");
+        }
+        logger.info("Searching a {} board ({} cells, {} words per state) with {} lit cells in {} clicks", 
+                    layout, layout.numCells, layout.getWords(), litCells.length, options.numClicks);
+
+        WideBoardSolver solver = new WideBoardSolver(layout, state, options.numClicks, options.numThreads);
+        int[] solution = solver.solve();
+        String elapsedFormatted = formatElapsedTime(System.currentTimeMillis() - startTime);
+
+        logger.info("\n\n--------------------------------------\n");
+        if (solution == null)
+        {
+            logger.info("No solution to the {} board in {} clicks was found ({} candidates).", layout, options.numClicks, solver.getCandidates());
+        }
+        else
+        {
+            logger.info("Wide - Found the solution as the following click combination: {}", solver.format(solution));
+        }
+        logger.info("Elapsed time: {}", elapsedFormatted);
+        logger.info("\n\n--------------------------------------\n");
+    }
+
+    private static void runMeetInTheMiddle(Grid baseGrid, SolverOptions options, long startTime)
+    {
+        int[] winningCombination;
+        try
+        {
+            MeetInTheMiddleSolver solver = new MeetInTheMiddleSolver(baseGrid, options.numClicks, options.numThreads,
+                                                                     options.mitmMemoryBytes, options.spillDirectory);
+            winningCombination = solver.solve();
+        } catch (IOException e)
+        {
+            logger.error("Meet-in-the-middle search failed while spilling to {}", options.spillDirectory, e);
             return;
         }
+        String elapsedFormatted = formatElapsedTime(System.currentTimeMillis() - startTime);
 
+        logger.info("\n\n--------------------------------------\n");
+
+        if (winningCombination == null)
+        {
+            logger.info("No solution to Q{} in {} clicks was found.", options.questionNumber, options.numClicks);
+            logger.info("Elapsed time: {}", elapsedFormatted);
+        }
+        else
+        {
+            reportSolution(baseGrid, "MITM", winningCombination, elapsedFormatted);
+        }
+
+        logger.info("\n\n--------------------------------------\n");
+    }
+
+    /**
+     * The --puzzle file, or the definition bundled for a question that has no Grid subclass. Its question number and, for boards
+     * other than 7x16, its layout and lit cells are copied into the options.
+     * @return null if the question is one of the built-in grids.
+     */
+    private static PuzzleDefinition loadPuzzle(SolverOptions options) throws IOException
+    {
+        PuzzleDefinition puzzle;
+        if (options.puzzleFile != null)
+        {
+            puzzle = PuzzleDefinition.load(options.puzzleFile);
+        }
+        else if (options.questionNumber != 13 && options.questionNumber != 22 && options.questionNumber != 35)
+        {
+            puzzle = PuzzleDefinition.bundled(options.questionNumber);
+        }
+        else
+        {
+            return null;
+        }
+        if (puzzle == null) return null;
+
+        if (puzzle.questionNumber != 0) options.questionNumber = puzzle.questionNumber;
+        if (!puzzle.layout.isStandard() && options.board == null)
+        {
+            options.board = puzzle.layout;
+            options.litCells = puzzle.getLitCells();
+        }
+        logger.info("Loaded Q{} on a {} board with {} lit cells", options.questionNumber, puzzle.layout, puzzle.getLitCells().length);
+        return puzzle;
+    }
+
+    /**
+     * Hands CombinationGenerator its per-puzzle tables from the --table-cache directory, building and caching them on the first run.
+     * Failing to use the cache only costs the build, so it is logged and the generators build the tables themselves.
+     */
+    private static void installPuzzleTables(Grid baseGrid, SolverOptions options)
+    {
+        if (options.tableCacheDirectory == null) return;
+
+        long start = System.nanoTime();
+        try
+        {
+            CombinationGenerator.installTables(PuzzleTables.load(options.tableCacheDirectory, baseGrid.getGridState()));
+            logger.debug("Puzzle tables ready in {} us", (System.nanoTime() - start) / 1000);
+        } catch (IOException | IllegalArgumentException e)
+        {
+            logger.warn("Could not use the table cache in {}, building the tables in memory", options.tableCacheDirectory, e);
+        }
+    }
+
+    private static Grid createGrid(int questionNumber)
+    {
+        if (questionNumber == 35) 
+        {
+            return new Grid35();
+        }
+        else if (questionNumber == 13)
+        {
+            return new Grid13();
+        }
+        else 
+        {
+            return new Grid22();
+        }
+    }
+
+    // Logs the winning combination (given in index format) and prints the grid after applying it
+    private static void reportSolution(Grid baseGrid, String winner, int[] winningCombination, String elapsedFormatted)
+    {
         // Convert the winning combination from index format to packed int format
         for (int i = 0; i < winningCombination.length; i++) 
         {
             winningCombination[i] = Grid.indexToPacked(winningCombination[i]);
         }
 
-        logger.info("{} - Found the solution as the following click combination: [{}]", queueArray.getWinningMonkey(), winningCombination);
+        logger.info("{} - Found the solution as the following click combination: [{}]", winner, winningCombination);
 
-        logger.info("{} - Elapsed time: {}", queueArray.getWinningMonkey(), elapsedFormatted);
+        logger.info("{} - Elapsed time: {}", winner, elapsedFormatted);
 
         // create a new grid and test out the winning combination
         Grid puzzleGrid = baseGrid.clone();
@@ -168,9 +974,6 @@ public class StartYourMonkeys
             solved = puzzleGrid.isSolved();
         }
         puzzleGrid.printGrid();
-
-        logger.info("\n\n--------------------------------------\n");
-        LogManager.shutdown();
     }
 
     private static String formatElapsedTime(long millis) 
@@ -0,0 +1,222 @@
+package com.github.mrgarbagegamer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The reflections of the board that leave a puzzle's starting state unchanged.
+ * The board has two mirror axes: left-right (column c of a 16-cell row goes to 15 - c, of a 15-cell row to 14 - c, which works because
+ * the short rows are inset by half a cell) and top-bottom (row r goes to 6 - r). Both map neighbours to neighbours, so if a mirror also
+ * fixes the grid state, it maps solutions to solutions. The search then only needs one combination per orbit: the canonical one, which is
+ * the lexicographically smallest of its images, and the other solutions are rebuilt by mirroring it back.
+ * Combinations compare like their sorted cell lists, which for two Bitmask-format sets means: the one holding the lowest cell of their
+ * symmetric difference is smaller.
+ */
+public final class Symmetry
+{
+    private static final String[] NAMES = {"left-right mirror", "top-bottom mirror", "180 degree rotation"};
+
+    private final String[] names; // Non-identity elements of the group
+    private final int[][] maps; // maps[g][cell] = image of cell (index format) under element g
+    private final long[][] imageLo, imageHi; // Bitmask of the image of each cell, split like Bitmask format
+
+    private Symmetry(List<String> names, List<int[]> maps)
+    {
+        this.names = names.toArray(new String[0]);
+        this.maps = maps.toArray(new int[0][]);
+        this.imageLo = new long[this.maps.length][Grid.NUM_CELLS];
+        this.imageHi = new long[this.maps.length][Grid.NUM_CELLS];
+        for (int g = 0; g < this.maps.length; g++)
+        {
+            for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+            {
+                int image = this.maps[g][cell];
+                if (image < 64) imageLo[g][cell] = 1L << image; else imageHi[g][cell] = 1L << (image - 64);
+            }
+        }
+    }
+
+    /**
+     * Finds the mirrors that fix the grid's current state.
+     * @return The symmetry group, or null if only the identity fixes the grid.
+     */
+    public static Symmetry of(Grid grid)
+    {
+        long[] state = grid.getGridState();
+        List<String> names = new ArrayList<>();
+        List<int[]> maps = new ArrayList<>();
+        for (int g = 0; g < NAMES.length; g++)
+        {
+            boolean mirrorColumns = (g != 1), mirrorRows = (g != 0);
+            int[] map = new int[Grid.NUM_CELLS];
+            for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+            {
+                int packed = Grid.indexToPacked(cell);
+                int row = packed / 100, col = packed % 100;
+                int rowLength = (row % 2 == 0) ? Grid.EVEN_NUM_COLS : Grid.ODD_NUM_COLS;
+                if (mirrorColumns) col = rowLength - 1 - col;
+                if (mirrorRows) row = Grid.NUM_ROWS - 1 - row;
+                map[cell] = Grid.packedToIndex(row * 100 + col);
+            }
+            if (isAutomorphism(map) && Arrays.equals(apply(map, state[0], state[1]), state))
+            {
+                names.add(NAMES[g]);
+                maps.add(map);
+            }
+        }
+        return maps.isEmpty() ? null : new Symmetry(names, maps);
+    }
+
+    // Neighbours must map to neighbours, or clicks would not commute with the mirror
+    private static boolean isAutomorphism(int[] map)
+    {
+        for (int cell = 0; cell < Grid.NUM_CELLS; cell++)
+        {
+            long[] adjacency = Grid.getAdjacencyMask(cell);
+            long[] expected = Grid.getAdjacencyMask(map[cell]);
+            long[] mapped = apply(map, adjacency[0], adjacency[1]);
+            if (mapped[0] != expected[0] || mapped[1] != expected[1]) return false;
+        }
+        return true;
+    }
+
+    private static long[] apply(int[] map, long lo, long hi)
+    {
+        long[] image = new long[2];
+        for (int w = 0; w < 2; w++)
+        {
+            for (long bits = (w == 0) ? lo : hi; bits != 0; bits &= bits - 1)
+            {
+                int cell = map[(w << 6) + Long.numberOfTrailingZeros(bits)];
+                image[cell >>> 6] |= 1L << cell;
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Size of the group, identity included: the most the search can shrink by.
+     */
+    public int order()
+    {
+        return maps.length + 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "order " + order() + " (" + String.join(", ", names) + ")";
+    }
+
+    /**
+     * DFS pruning: false if no combination starting with these clicks (ascending, every later click larger) can be canonical.
+     * With P the known clicks c1 < ... < cm and d1 < d2 < ... the sorted image of the full combination, the image holds at least as
+     * many cells below a value as g(P) does. So if g(P) proves d_i &lt;= c_i for every i &lt; j and d_j &lt; c_j, the image is smaller
+     * whatever clicks follow.
+     */
+    public boolean canBeCanonical(int[] indices, int size)
+    {
+        for (int g = 0; g < maps.length; g++)
+        {
+            long lo = 0L, hi = 0L;
+            for (int j = 0; j < size; j++)
+            {
+                lo |= imageLo[g][indices[j]];
+                hi |= imageHi[g][indices[j]];
+            }
+
+            for (int j = 0; j < size; j++)
+            {
+                int c = indices[j];
+                int below = countBelow(lo, hi, c); // Image cells < c
+                if (below >= j + 1) return false; // d_j < c_j
+                boolean imageHasC = (c < 64) ? (lo & (1L << c)) != 0 : (hi & (1L << (c - 64))) != 0;
+                if (below + (imageHasC ? 1 : 0) < j + 1) break; // d_j <= c_j not guaranteed, nothing more to learn from g
+            }
+        }
+        return true;
+    }
+
+    private static int countBelow(long lo, long hi, int cell)
+    {
+        if (cell < 64) return Long.bitCount(lo & ((1L << cell) - 1));
+        return Long.bitCount(lo) + Long.bitCount(hi & ((1L << (cell - 64)) - 1));
+    }
+
+    /**
+     * Images of a prefix under every non-identity element, so the leaves below it can be checked with isCanonical() in O(1) each.
+     * @param images At least 2 * (order() - 1) longs, filled with {lo, hi} per element.
+     */
+    public void prefixImages(int[] indices, int size, long[] images)
+    {
+        for (int g = 0; g < maps.length; g++)
+        {
+            long lo = 0L, hi = 0L;
+            for (int j = 0; j < size; j++)
+            {
+                lo |= imageLo[g][indices[j]];
+                hi |= imageHi[g][indices[j]];
+            }
+            images[g << 1] = lo;
+            images[(g << 1) + 1] = hi;
+        }
+    }
+
+    /**
+     * True if the combination (Bitmask format) is no larger than any of its images.
+     * @param prefixImages From prefixImages() for every click but the last.
+     */
+    public boolean isCanonical(long lo, long hi, long[] prefixImages, int lastClick)
+    {
+        for (int g = 0; g < maps.length; g++)
+        {
+            long imageLoG = prefixImages[g << 1] | imageLo[g][lastClick];
+            long imageHiG = prefixImages[(g << 1) + 1] | imageHi[g][lastClick];
+            if (!notLarger(lo, hi, imageLoG, imageHiG)) return false;
+        }
+        return true;
+    }
+
+    // a <= b as sorted cell lists: equal, or the lowest cell where they differ is in a
+    private static boolean notLarger(long aLo, long aHi, long bLo, long bHi)
+    {
+        long diffLo = aLo ^ bLo;
+        if (diffLo != 0) return (aLo & diffLo & -diffLo) != 0;
+        long diffHi = aHi ^ bHi;
+        return diffHi == 0 || (aHi & diffHi & -diffHi) != 0;
+    }
+
+    /**
+     * Writes the distinct images of a combination (itself first) into out as {lo, hi} pairs.
+     * @param out At least 2 * order() longs.
+     * @return The number of distinct images.
+     */
+    public int orbit(long lo, long hi, long[] out)
+    {
+        out[0] = lo;
+        out[1] = hi;
+        int count = 1;
+        for (int g = 0; g < maps.length; g++)
+        {
+            long imageLoG = 0L, imageHiG = 0L;
+            for (int w = 0; w < 2; w++)
+            {
+                for (long bits = (w == 0) ? lo : hi; bits != 0; bits &= bits - 1)
+                {
+                    int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    imageLoG |= imageLo[g][cell];
+                    imageHiG |= imageHi[g][cell];
+                }
+            }
+
+            boolean seen = false;
+            for (int i = 0; i < count && !seen; i++) seen = out[i << 1] == imageLoG && out[(i << 1) + 1] == imageHiG;
+            if (seen) continue;
+            out[count << 1] = imageLoG;
+            out[(count << 1) + 1] = imageHiG;
+            count++;
+        }
+        return count;
+    }
+}
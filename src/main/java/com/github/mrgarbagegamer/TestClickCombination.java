@@ -1,5 +1,7 @@
 package com.github.mrgarbagegamer;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -7,14 +9,18 @@ public class TestClickCombination extends Thread
 {
     private static final Logger logger = LogManager.getLogger(TestClickCombination.class);
     private static final int LOG_EVERY_N_FAILURES = 10000; // Log every N failures to avoid flooding the logs
+    private static final int QUEUE_CHUNK = 16; // Batches moved from the own queue into the deque at a time, besides the one returned
 
     private final CombinationQueue combinationQueue;
     private final CombinationQueueArray queueArray;
     private final Grid puzzleGrid;
+    private final BatchEvaluator evaluator;
+    private final SolverMetrics.Counters counters;
+    private long tested = 0, steals = 0, stealMisses = 0; // Published to counters once per batch
+    private final int ownQueue; // Index of combinationQueue (and of this consumer's deque) in the queue array
+    private final WorkStealingDeque deque; // Batches taken from combinationQueue or stolen, popped newest first
+    private int lastQueue = -1; // Queue the last batch from getWork() came from, -1 for the shared ring
 
-    // Make these static and initialize once
-    private static volatile long[][] CLICK_TO_TRUE_CELL_MASK = null;
-    private static volatile long EXPECTED_MASK = 0L;
     
     public TestClickCombination(String threadName, CombinationQueue combinationQueue, 
                                CombinationQueueArray queueArray, Grid puzzleGrid) 
@@ -23,47 +29,10 @@ public class TestClickCombination extends Thread
         this.combinationQueue = combinationQueue;
         this.queueArray = queueArray;
         this.puzzleGrid = puzzleGrid;
-        
-        // Initialize lookup table once for all threads
-        int[] trueCells = puzzleGrid.findTrueCells(Grid.ValueFormat.Index); // Find all true cells in index format
-        initializeLookupTable(trueCells);
-    }
-
-    // Initialize the static lookup table for fast odd adjacency checks
-    private static void initializeLookupTable(int[] trueCells)
-    {
-        // Double-checked locking for thread-safe lazy initialization
-        if (CLICK_TO_TRUE_CELL_MASK == null)
-        {
-            synchronized (TestClickCombination.class)
-            {
-                if (CLICK_TO_TRUE_CELL_MASK == null)
-                {
-                    long[][] lookup = new long[Grid.NUM_CELLS][2]; // 109 possible clicks, 2 long values for 128 bits
-                    
-                    for (int clickCell = 0; clickCell < 109; clickCell++) // Generate all possible clicks in index format
-                    {
-                        for (int i = 0; i < trueCells.length; i++) 
-                        {
-                            if (Grid.areAdjacent(trueCells[i], clickCell, Grid.ValueFormat.Index))
-                            {
-                                int longIndex = i / 64;
-                                int bitPosition = i % 64;
-                                lookup[clickCell][longIndex] |= (1L << bitPosition);
-                            }
-                        }
-                    }
-                    
-                    // Compute expected mask once
-                    long expectedMask = trueCells.length >= 64 ? 
-                        0xFFFFFFFFFFFFFFFFL : (1L << trueCells.length) - 1;
-                    
-                    // Atomically publish the results
-                    EXPECTED_MASK = expectedMask;
-                    CLICK_TO_TRUE_CELL_MASK = lookup; // This must be last
-                }
-            }
-        }
+        this.evaluator = new BatchEvaluator(puzzleGrid);
+        this.counters = queueArray.getMetrics().newCounters();
+        this.ownQueue = ownQueueIndex(queueArray.getAllQueues());
+        this.deque = queueArray.getDeque(ownQueue);
     }
 
     @Override
@@ -71,9 +40,11 @@ public class TestClickCombination extends Thread
     {
         int failedCount = 0; // Count of failed attempts for logging
         boolean iSolvedIt = false;
-        CombinationQueue[] queues = queueArray.getAllQueues();
-
-        int[] trueCells = puzzleGrid.findTrueCells();
+        Checkpoint checkpoint = queueArray.getCheckpoint();
+        SolutionSink sink = queueArray.getSolutionSink();
+        WaitStrategy waitStrategy = queueArray.getWaitStrategy();
+        SolverEvents.ConsumerIdle idle = null; // Open while this consumer finds no work
+        int misses = 0; // Attempts since work last arrived, drives the wait strategy
 
         while (!iSolvedIt && !queueArray.solutionFound)
         {
@@ -81,180 +52,186 @@ public class TestClickCombination extends Thread
 
             if (workBatch == null)
             {
-                if (queueArray.solutionFound || (queueArray.generationComplete && allQueuesEmpty(queues)))
+                if (queueArray.solutionFound || queueArray.isQuiescent())
                 {
-                    break; // Exit if solution found or generation is done and all queues are empty
+                    break; // Exit if solution found or every generated batch has been evaluated
                 }
-                try 
-                { 
-                    Thread.sleep(1); 
+                if (idle == null)
+                {
+                    idle = new SolverEvents.ConsumerIdle();
+                    idle.begin();
                 }
-                catch (InterruptedException e) 
+                waitStrategy.idle(++misses);
+                if (Thread.currentThread().isInterrupted())
                 {
-                    Thread.currentThread().interrupt(); // Restore interrupted status
-                    logger.error("Thread interrupted while waiting for new combinations", e);
+                    logger.error("Thread interrupted while waiting for new combinations");
                     break;
                 }
                 continue; // Retry getting a combination
             }
-            
-            while (!workBatch.isEmpty()) 
+            if (idle != null)
             {
-                int[] combinationClicks = workBatch.poll(); // Get the next combination of clicks (in index format)
-                if (combinationClicks == null || queueArray.solutionFound)
-                {
-                    break;
-                }
+                idle.misses = misses;
+                idle.commit();
+                idle = null;
+            }
+            misses = 0;
 
-                if (satisfiesOddAdjacency(combinationClicks, trueCells)) 
+            SolverEvents.BatchConsumed event = new SolverEvents.BatchConsumed();
+            event.begin();
+            int count = workBatch.size();
+            if (count > 0 && !queueArray.solutionFound)
+            {
+                int hit = -1;
+                while ((hit = evaluator.findSolution(workBatch, hit + 1)) != -1)
                 {
-                    for (int click : combinationClicks)
+                    // The evaluator's check is exact, but replay on the grid before claiming the win
+                    long clickLo = workBatch.lo(hit), clickHi = workBatch.hi(hit);
+                    puzzleGrid.clickBitmask(clickLo, clickHi);
+                    boolean solved = puzzleGrid.isSolved();
+                    puzzleGrid.initialize();
+
+                    if (solved && sink != null)
                     {
-                        puzzleGrid.click(click);
+                        queueArray.recordSolution(clickLo, clickHi); // All-solutions mode: record it (and its mirror images) and keep going
+                        continue;
                     }
-
-                    iSolvedIt = puzzleGrid.isSolved();
-
-                    if (iSolvedIt) 
+                    if (solved) 
                     {
-                        logger.info("Found the solution as the following click combination: {}", 
-                                   new CombinationMessage(combinationClicks.clone(), Grid.ValueFormat.Index));
-                        queueArray.solutionFound(this.getName(), combinationClicks.clone());
-                        // Do NOT recycle the batch containing the winning combination to avoid UAF on the winning array.
-                        // Let it be garbage collected.
+                        iSolvedIt = true;
+                        logger.info("Found the solution as the following click combination: {}", new CombinationMessage(clickLo, clickHi));
+                        queueArray.solutionFound(this.getName(), Grid.bitmaskToIndices(clickLo, clickHi));
                         return;
                     }
-
-                    // // Update firstTrueCell and adjacents cache if changed
-                    // int newFirstTrueCell = puzzleGrid.findFirstTrueCell();
-                    // if (newFirstTrueCell != firstTrueCell) 
-                    // {
-                    //     firstTrueCell = newFirstTrueCell;
-                    //     firstTrueAdjacents = (firstTrueCell != -1) ? Grid.findAdjacents(firstTrueCell) : null; // Uncomment this line if you want to use more aggressive but less efficient pruning
-                    // }
-
-                    // // Prune if no remaining click can affect the first true cell
-                    // boolean canAffect = false;
-                    // for (int j = i + 1; j < combinationClicks.length; j++) 
-                    // {
-                    //     int nextClick = combinationClicks[j];
-                    //     if (Grid.canAffectFirstTrueCell(firstTrueCell, nextClick)) 
-                    //     {
-                    //         canAffect = true;
-                    //         break;
-                    //     }
-                    // }
-                    // if (!canAffect) 
-                    // {
-                    //     break;
-                    // }
-
-                    // // Uncomment these lines to prune if no remaining click is in firstTrueAdjacents (if you want even more aggressive but less efficient pruning)
-                    // if (firstTrueAdjacents != null) {
-                    //     boolean hasTrueAdjacent = false;
-                    //     for (int j = i + 1; j < combinationClicks.length; j++) {
-                    //         int nextClick = combinationClicks[j];
-                    //         for (int adj : firstTrueAdjacents) {
-                    //             if (nextClick == adj) {
-                    //                 hasTrueAdjacent = true;
-                    //                 break;
-                    //             }
-                    //         }
-                    //         if (hasTrueAdjacent) break; // Found a valid adjacent click                        
-                    //     }
-                    //     if (!hasTrueAdjacent) break;
-                    // }
+                    logger.warn("Batch evaluator accepted {} but the grid is not solved", new CombinationMessage(clickLo, clickHi));
                 }
-                else continue;
 
-                if (!iSolvedIt)
+                tested += count;
+                failedCount += count;
+                if (failedCount >= LOG_EVERY_N_FAILURES && logger.isDebugEnabled() && !queueArray.solutionFound) 
                 {
-                    failedCount++;
-                    if (failedCount == LOG_EVERY_N_FAILURES && logger.isDebugEnabled() && !queueArray.solutionFound) 
-                    {
-                        logger.debug("Tried and failed: {}", new CombinationMessage(combinationClicks.clone(), Grid.ValueFormat.Index));
-                        failedCount = 0; // Reset the count after logging
-                    }
+                    logger.debug("Tried and failed: {}", new CombinationMessage(workBatch.lo(count - 1), workBatch.hi(count - 1)));
+                    failedCount = 0; // Reset the count after logging
                 }
-
-                // reset the grid for the next combination
-                puzzleGrid.initialize();
             }
 
-            // After processing, recycle the batch
+            // After processing, report the batch's prefixes as evaluated and recycle it
+            if (checkpoint != null) checkpoint.release(workBatch);
+            workBatch.clear();
             queueArray.getWorkBatchPool().offer(workBatch);
+            if (lastQueue != -1) queueArray.batchDone(); // Ring batches are accounted for by the ring
+            publishMetrics();
+
+            event.size = count;
+            event.queue = lastQueue;
+            event.stolen = lastQueue != -1 && lastQueue != ownQueue;
+            event.commit();
         }
+        if (idle != null)
+        {
+            idle.misses = misses;
+            idle.commit();
+        }
+        publishMetrics();
+    }
+
+    private void publishMetrics()
+    {
+        counters.set(SolverMetrics.Counter.Tested, tested);
+        counters.set(SolverMetrics.Counter.Steals, steals);
+        counters.set(SolverMetrics.Counter.StealMisses, stealMisses);
     }
 
     /**
-     * Gets a batch of work, first from the primary queue, then by stealing.
+     * Gets a batch of work, first from the own deque and queue, then by stealing from a random victim.
      */
     private WorkBatch getWork()
     {
-        // Try my own queue first
-        WorkBatch batch = combinationQueue.getWorkBatch();
+        SharedWorkRing ring = queueArray.getSharedRing();
+        if (ring != null)
+        {
+            // Every batch goes through the ring in shared mode, copy the next one into a pooled batch
+            lastQueue = -1;
+            WorkBatch batch = queueArray.getWorkBatchPool().poll();
+            if (batch == null) batch = new WorkBatch(ring.getBatchCapacity());
+            if (ring.poll(batch)) return batch;
+            queueArray.getWorkBatchPool().offer(batch);
+            return null;
+        }
+
+        // Newest batch of my own deque first
+        WorkBatch batch = deque.pop();
         if (batch != null)
         {
+            lastQueue = ownQueue;
+            return batch;
+        }
+
+        // Then my queue, moving a chunk of what is waiting there into the deque, where thieves can get at it too
+        batch = combinationQueue.getWorkBatch();
+        if (batch != null)
+        {
+            for (int more = Math.min(QUEUE_CHUNK, deque.remaining()); more > 0; more--)
+            {
+                WorkBatch next = combinationQueue.getWorkBatch();
+                if (next == null) break;
+                deque.push(next);
+            }
+            lastQueue = ownQueue;
             return batch;
         }
 
-        // My queue is empty, try to steal
+        // Nothing of my own. If nothing is in flight either, every other queue is empty too
+        if (queueArray.getBatchesInFlight() == 0)
+        {
+            stealMisses++;
+            return null;
+        }
+
+        // Steal half of a victim's deque, or else of its queue. Victims are visited from a random start, so thieves spread out
         CombinationQueue[] queues = queueArray.getAllQueues();
+        WorkStealingDeque[] deques = queueArray.getAllDeques();
+        int start = ThreadLocalRandom.current().nextInt(queues.length);
         for (int i = 0; i < queues.length; i++)
         {
-            batch = queues[i].getWorkBatch();
+            int victim = (start + i) % queues.length;
+            if (victim == ownQueue) continue;
+
+            batch = deques[victim].stealHalf(deque);
+            if (batch == null) batch = stealHalf(queues[victim]);
             if (batch != null)
             {
+                lastQueue = victim;
+                steals += 1 + deque.size(); // The deque was empty before the steal
                 return batch;
             }
         }
 
+        stealMisses++;
         return null; // No work found anywhere
     }
 
-    // TODO: Look at replacing the boolean return type with a workbatch and returning the batch if it finds one
-    private boolean allQueuesEmpty(CombinationQueue[] queues)
+    // Takes one batch from another consumer's queue and up to half of the rest into my deque
+    private WorkBatch stealHalf(CombinationQueue victim)
     {
-        for (CombinationQueue q : queues)
+        WorkBatch first = victim.getWorkBatch();
+        if (first == null) return null;
+
+        for (int more = Math.min(victim.size() / 2, deque.remaining()); more > 0; more--)
         {
-            if (q.getWorkBatch() != null)
-            {
-                // This is not ideal as it consumes an item, but for end-of-work check it's a simple approach.
-                // A better way would be a size() method, but MpmcArrayQueue size is not linearizable.
-                return false;
-            }
+            WorkBatch batch = victim.getWorkBatch();
+            if (batch == null) break;
+            deque.push(batch);
         }
-        return true;
+        return first;
     }
 
-    // Ultra-fast bitmask-based odd adjacency check using static lookup
-    private boolean satisfiesOddAdjacency(int[] combination, int[] trueCells) 
+    private int ownQueueIndex(CombinationQueue[] queues)
     {
-        if (trueCells.length == 0) return true;
-        
-        long trueCellCounts0 = 0L;
-        long trueCellCounts1 = 0L;
-        
-        // Use static lookup table
-        for (int click : combination) 
-        {
-            trueCellCounts0 ^= CLICK_TO_TRUE_CELL_MASK[click][0];
-            if (trueCells.length > 64)
-            {
-                trueCellCounts1 ^= CLICK_TO_TRUE_CELL_MASK[click][1];
-            }
-        }
-        
-        // Use static expected mask
-        if (trueCells.length <= 64)
-        {
-            return trueCellCounts0 == EXPECTED_MASK;
-        }
-        else
+        for (int i = 0; i < queues.length; i++)
         {
-            long expectedMask1 = trueCells.length >= 128 ? 
-                0xFFFFFFFFFFFFFFFFL : (1L << (trueCells.length - 64)) - 1;
-            return trueCellCounts0 == 0xFFFFFFFFFFFFFFFFL && trueCellCounts1 == expectedMask1;
+            if (queues[i] == combinationQueue) return i;
         }
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,186 @@
+package com.github.mrgarbagegamer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How consumers wait for work and generators wait for queue space.
+ * A batch takes microseconds to evaluate, so the old Thread.sleep(1) per miss left an idle consumer out for hundreds of batches.
+ * Each strategy trades CPU burned while idle against how quickly a waiting thread notices new work:
+ * <ul>
+ * <li>Spin: Thread.onSpinWait() forever. Lowest latency, but only sensible with a core per thread.</li>
+ * <li>Yield: spin briefly, then Thread.yield(). Lets other runnable threads in on an oversubscribed machine.</li>
+ * <li>Backoff: spin, yield, then LockSupport.parkNanos() with a delay doubling up to 1 ms. The default.</li>
+ * <li>Block: spin briefly, then park until a generator queues a batch and unparks a sleeper (with a 1 ms timeout as a safety net).</li>
+ * </ul>
+ * One instance is shared by all threads of a run, see CombinationQueueArray.getWaitStrategy().
+ */
+public abstract class WaitStrategy
+{
+    public enum Kind
+    {
+        Spin,
+        Yield,
+        Backoff,
+        Block
+    }
+
+    static final int SPIN_TRIES = 100; // Attempts spent in onSpinWait() before yielding
+    static final int YIELD_TRIES = 100; // Attempts spent in yield() before parking
+    static final long MIN_PARK_NANOS = 1_000L;
+    static final long MAX_PARK_NANOS = 1_000_000L;
+
+    public static WaitStrategy create(Kind kind)
+    {
+        switch (kind)
+        {
+            case Spin: return new Spin();
+            case Yield: return new Yield();
+            case Block: return new Block();
+            default: return new Backoff();
+        }
+    }
+
+    /**
+     * Called by a consumer that found no work. attempt counts the consecutive misses, starting at 1.
+     * Returns early if the thread is interrupted, callers check its status.
+     */
+    public abstract void idle(int attempt);
+
+    /**
+     * Called by a generator whose batch no queue had room for. attempt counts the consecutive failed offers, starting at 1.
+     */
+    public void backoff(int attempt)
+    {
+        spinYieldPark(attempt);
+    }
+
+    /**
+     * Called by a generator after it queued a batch.
+     */
+    public void signal()
+    {
+    }
+
+    /**
+     * Wakes every waiting consumer, when generation completes or a solution is found.
+     */
+    public void signalAll()
+    {
+    }
+
+    public abstract Kind kind();
+
+    static void spinYieldPark(int attempt)
+    {
+        if (attempt <= SPIN_TRIES)
+        {
+            Thread.onSpinWait();
+        } else if (attempt <= SPIN_TRIES + YIELD_TRIES)
+        {
+            Thread.yield();
+        } else
+        {
+            int doublings = Math.min(attempt - SPIN_TRIES - YIELD_TRIES - 1, 10); // 1 us << 10 is just past the 1 ms cap
+            LockSupport.parkNanos(Math.min(MIN_PARK_NANOS << doublings, MAX_PARK_NANOS));
+        }
+    }
+
+    private static final class Spin extends WaitStrategy
+    {
+        @Override
+        public void idle(int attempt)
+        {
+            Thread.onSpinWait();
+        }
+
+        @Override
+        public void backoff(int attempt)
+        {
+            Thread.onSpinWait();
+        }
+
+        @Override
+        public Kind kind()
+        {
+            return Kind.Spin;
+        }
+    }
+
+    private static final class Yield extends WaitStrategy
+    {
+        @Override
+        public void idle(int attempt)
+        {
+            if (attempt <= SPIN_TRIES) Thread.onSpinWait(); else Thread.yield();
+        }
+
+        @Override
+        public void backoff(int attempt)
+        {
+            idle(attempt);
+        }
+
+        @Override
+        public Kind kind()
+        {
+            return Kind.Yield;
+        }
+    }
+
+    private static final class Backoff extends WaitStrategy
+    {
+        @Override
+        public void idle(int attempt)
+        {
+            spinYieldPark(attempt);
+        }
+
+        @Override
+        public Kind kind()
+        {
+            return Kind.Backoff;
+        }
+    }
+
+    private static final class Block extends WaitStrategy
+    {
+        private final ConcurrentLinkedQueue<Thread> sleepers = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void idle(int attempt)
+        {
+            if (attempt <= SPIN_TRIES)
+            {
+                Thread.onSpinWait();
+                return;
+            }
+
+            // A batch queued between the caller's miss and this offer wakes nobody, the timeout bounds how long that can strand us
+            Thread me = Thread.currentThread();
+            sleepers.offer(me);
+            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            sleepers.remove(me);
+        }
+
+        @Override
+        public void signal()
+        {
+            Thread sleeper = sleepers.poll(); // Just a volatile read when nobody sleeps
+            if (sleeper != null) LockSupport.unpark(sleeper);
+        }
+
+        @Override
+        public void signalAll()
+        {
+            Thread sleeper;
+            while ((sleeper = sleepers.poll()) != null) LockSupport.unpark(sleeper);
+        }
+
+        @Override
+        public Kind kind()
+        {
+            return Kind.Block;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.mrgarbagegamer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Brute-force search for boards of any BoardLayout, used when the board is not the 109-cell one the two-long WorkBatch pipeline is
+ * built around. It walks the same ascending-click DFS as CombinationGenerator with the same frozen-cell pruning, but keeps the board
+ * in a BitBoard of whatever width the layout needs and tests leaves in place. Threads claim first clicks one at a time.
+ */
+public class WideBoardSolver
+{
+    private static final Logger logger = LogManager.getLogger(WideBoardSolver.class);
+
+    private final BoardLayout layout;
+    private final long[] initialState;
+    private final int numClicks;
+    private final int numThreads;
+    private final int firstClickEnd; // Every solution clicks a neighbour of the first lit cell, so its first click comes before this
+
+    private final AtomicInteger nextFirstClick = new AtomicInteger(0);
+    private final AtomicLong candidates = new AtomicLong();
+    private volatile int[] solution = null; // Index format
+
+    public WideBoardSolver(BoardLayout layout, long[] initialState, int numClicks, int numThreads)
+    {
+        this.layout = layout;
+        this.initialState = initialState.clone();
+        this.numClicks = numClicks;
+        this.numThreads = Math.max(1, numThreads);
+
+        int firstLit = -1;
+        for (int w = 0; w < initialState.length && firstLit == -1; w++)
+        {
+            if (initialState[w] != 0) firstLit = (w << 6) + Long.numberOfTrailingZeros(initialState[w]);
+        }
+        this.firstClickEnd = (firstLit == -1) ? 0 : layout.getLastAffectingClick(firstLit) + 1;
+    }
+
+    /**
+     * Searches every combination of numClicks clicks.
+     * @return The first solution found in Index format, or null if there is none.
+     */
+    public int[] solve()
+    {
+        if (numClicks < 1 || numClicks > layout.numCells) return null;
+
+        Thread[] workers = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++)
+        {
+            workers[t] = new Thread(this::work, String.format("Wide-%d", t));
+            workers[t].start();
+        }
+        for (Thread worker : workers)
+        {
+            try
+            {
+                worker.join();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return solution;
+    }
+
+    public long getCandidates()
+    {
+        return candidates.get();
+    }
+
+    private void work()
+    {
+        BitBoard board = BitBoard.of(layout, initialState);
+        int[] clicks = new int[numClicks];
+        long[] leaves = new long[1];
+        int first;
+        while (solution == null && (first = nextFirstClick.getAndIncrement()) < firstClickEnd)
+        {
+            if (first > layout.numCells - numClicks) break;
+
+            clicks[0] = first;
+            boolean found;
+            if (numClicks == 1)
+            {
+                leaves[0]++;
+                found = board.clearedBy(first);
+            }
+            else
+            {
+                board.click(first);
+                found = !board.frozenLit(first + 1) && search(board, clicks, 1, first + 1, leaves);
+                board.click(first);
+            }
+            if (found)
+            {
+                solution = clicks.clone();
+                logger.info("{} - Found the solution as the following click combination: {}", Thread.currentThread().getName(), format(clicks));
+            }
+        }
+        candidates.addAndGet(leaves[0]);
+    }
+
+    // clicks[0 .. depth) are applied to the board, the rest come from [start, numCells)
+    private boolean search(BitBoard board, int[] clicks, int depth, int start, long[] leaves)
+    {
+        int remaining = numClicks - depth;
+        if (remaining == 1)
+        {
+            for (int i = start; i < layout.numCells; i++)
+            {
+                leaves[0]++;
+                if (!board.clearedBy(i)) continue;
+                clicks[depth] = i;
+                return true;
+            }
+            return false;
+        }
+
+        for (int i = start; i <= layout.numCells - remaining && solution == null; i++)
+        {
+            board.click(i);
+            clicks[depth] = i;
+            boolean found = !board.frozenLit(i + 1) && search(board, clicks, depth + 1, i + 1, leaves);
+            board.click(i);
+            if (found) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Formats a combination in Index format as Packed int cells of this layout.
+     */
+    public String format(int[] combination)
+    {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < combination.length; i++)
+        {
+            if (i > 0) text.append(", ");
+            text.append(layout.indexToPacked(combination[i]));
+        }
+        return text.append(']').toString();
+    }
+}
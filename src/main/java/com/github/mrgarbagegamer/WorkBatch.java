@@ -1,60 +1,77 @@
 package com.github.mrgarbagegamer;
 
-import org.jctools.queues.MessagePassingQueue;
+import java.util.Arrays;
 
 /**
- * High-performance circular buffer for worker thread batching.
- * Eliminates ArrayDeque overhead while maintaining the same semantics.
- * This object is now pooled and recycled, with the assumption that only one thread will have access to the object at a time.
+ * Flat batch of click combinations for worker thread batching.
+ * Each combination is stored in Bitmask format (bit i set = cell i clicked, see Grid.ValueFormat.Bitmask) as two consecutive longs,
+ * so a whole batch is one contiguous primitive array instead of one heap array per combination.
+ * This object is pooled and recycled, with the assumption that only one thread will have access to the object at a time.
+ * The generator appends until the batch is full and the consumer reads it by index, then clears it before recycling.
  */
-public final class WorkBatch implements MessagePassingQueue.Consumer<int[]>, MessagePassingQueue.Supplier<int[]>
+public final class WorkBatch
 {
-    private final int[][] buffer;
+    private final long[] masks; // {lo, hi} of combination i at masks[2 * i], masks[2 * i + 1]
     private final int capacity;
-    private int head = 0;
-    private int tail = 0;
     private int size = 0;
+    private int[] prefixes = new int[8]; // Checkpoint prefixes with leaves in this batch, in the order they were added
+    private int prefixCount = 0;
 
     public WorkBatch(int capacity)
     {
         this.capacity = capacity;
-        this.buffer = new int[capacity][];
+        this.masks = new long[capacity << 1];
     }
 
     /**
-     * Adds a combination by copying its contents into the array at the tail of the buffer.
-     * This avoids the caller needing to clone and prevents allocation of temporary objects.
-     * @param source The source combination array.
-     * @return true if the element was added, false if the batch is full.
+     * Appends a combination in Bitmask format.
+     * @param lo Clicks on cells 0-63.
+     * @param hi Clicks on cells 64-108, shifted down by 64.
+     * @return true if the combination was added, false if the batch is full.
      */
-    public boolean add(int[] source) 
+    public boolean add(long lo, long hi)
     {
-        if (isFull())
+        if (size >= capacity)
         {
             return false;
         }
-        if (buffer[tail] == null) buffer[tail] = new int[source.length];
-        System.arraycopy(source, 0, buffer[tail], 0, source.length);
-        tail = (tail + 1) % capacity;
+        masks[size << 1] = lo;
+        masks[(size << 1) + 1] = hi;
         size++;
         return true;
     }
 
     /**
-     * Remove and return next combination.
-     * @return result if there is a valid combination in the array, null if the batch is empty.
+     * Low word (cells 0-63) of the combination at the given position.
      */
-    public int[] poll() 
+    public long lo(int index)
     {
-        if (size == 0)
-        {
-            return null;
-        }
-        
-        int[] result = buffer[head];
-        head = (head + 1) % capacity;
-        size--;
-        return result;
+        return masks[index << 1];
+    }
+
+    /**
+     * High word (cells 64-108) of the combination at the given position.
+     */
+    public long hi(int index)
+    {
+        return masks[(index << 1) + 1];
+    }
+
+    /**
+     * Returns the backing array for bulk readers: combination i is at [2 * i, 2 * i + 1] for i < size().
+     */
+    public long[] masks()
+    {
+        return masks;
+    }
+
+    /**
+     * Sets the number of combinations after they were written straight into masks(), e.g. by SharedWorkRing.
+     */
+    void setSize(int size)
+    {
+        if (size < 0 || size > capacity) throw new IllegalArgumentException("Batch size " + size + " out of range");
+        this.size = size;
     }
 
     /**
@@ -82,31 +99,34 @@ public final class WorkBatch implements MessagePassingQueue.Consumer<int[]>, Mes
     }
 
     /**
-     * "Clears" the batch for reuse, making sure not to null the previous arrays (as this would force add() to create a new array).
+     * Records that the leaves being added belong to the given checkpoint prefix.
+     * @return true if this is a new prefix for the batch (leaves of one prefix are always added consecutively).
      */
-    public void clear() 
+    public boolean notePrefix(int prefix)
     {
-        head = 0;
-        tail = 0;
-        size = 0;
+        if (prefixCount > 0 && prefixes[prefixCount - 1] == prefix) return false;
+        if (prefixCount == prefixes.length) prefixes = Arrays.copyOf(prefixes, prefixCount << 1);
+        prefixes[prefixCount++] = prefix;
+        return true;
     }
 
-    /**
-     * MessagePassingQueue.Consumer implementation for JCTools integration.
-     */
-    @Override
-    public void accept(int[] combination) 
+    public int getPrefixCount()
+    {
+        return prefixCount;
+    }
+
+    public int getPrefix(int index)
     {
-        add(combination);
+        return prefixes[index];
     }
 
     /**
-     * MessagePassingQueue.Supplier implementation for JCTools integration.
+     * Empties the batch for reuse. The backing array is kept.
      */
-    @Override
-    public int[] get() 
+    public void clear() 
     {
-        return poll();
+        size = 0;
+        prefixCount = 0;
     }
 
     /**
@@ -0,0 +1,156 @@
+package com.github.mrgarbagegamer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded Chase-Lev work-stealing deque of WorkBatches, one per consumer.
+ * Only the owning consumer pushes and pops, at the bottom, so it gets back the batch it touched last (LIFO). Any other consumer may
+ * steal from the top (FIFO), and stealHalf() moves up to half of the victim's batches in one visit, so a thief that found work once
+ * does not come back for every batch. Steals claim one slot at a time with a CAS on top, which is what keeps them safe against the
+ * owner racing for the last batch.
+ *
+ * See D. Chase and Y. Lev, "Dynamic Circular Work-Stealing Deque" (SPAA 2005), and Le et al., "Correct and Efficient Work-Stealing
+ * for Weak Memory Models" (PPoPP 2013) for the fences.
+ */
+public final class WorkStealingDeque
+{
+    private static final VarHandle TOP;
+    private static final VarHandle BOTTOM;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(WorkBatch[].class);
+
+    static
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+            BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+        } catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final WorkBatch[] slots;
+    private final int mask;
+
+    // Thieves hammer top and the owner bottom, keep them off each other's cache line
+    @SuppressWarnings("unused")
+    private long p01, p02, p03, p04, p05, p06, p07;
+    private volatile long top = 0;
+    @SuppressWarnings("unused")
+    private long p11, p12, p13, p14, p15, p16, p17;
+    private volatile long bottom = 0;
+    @SuppressWarnings("unused")
+    private long p21, p22, p23, p24, p25, p26, p27;
+
+    /**
+     * @param capacity Rounded up to a power of two.
+     */
+    public WorkStealingDeque(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new WorkBatch[size];
+        this.mask = size - 1;
+    }
+
+    public int getCapacity()
+    {
+        return slots.length;
+    }
+
+    /**
+     * Approximate number of batches in the deque, for monitoring and steal sizing only.
+     */
+    public int size()
+    {
+        long size = (long) BOTTOM.getOpaque(this) - (long) TOP.getOpaque(this);
+        return (int) Math.max(0, size);
+    }
+
+    /**
+     * Owner only: adds a batch at the bottom.
+     * @return false if the deque is full.
+     */
+    public boolean push(WorkBatch batch)
+    {
+        long b = (long) BOTTOM.getOpaque(this);
+        long t = (long) TOP.getAcquire(this);
+        if (b - t >= slots.length) return false;
+        SLOTS.setRelease(slots, (int) (b & mask), batch);
+        BOTTOM.setRelease(this, b + 1); // Publishes the slot to thieves
+        return true;
+    }
+
+    /**
+     * Owner only: takes the batch pushed last.
+     * @return null if the deque is empty (or a thief took the last batch).
+     */
+    public WorkBatch pop()
+    {
+        long b = (long) BOTTOM.getOpaque(this) - 1;
+        BOTTOM.setVolatile(this, b); // Reserve the slot before looking at top, full fence
+        long t = (long) TOP.getVolatile(this);
+        if (t > b)
+        {
+            BOTTOM.setOpaque(this, b + 1); // Was empty
+            return null;
+        }
+
+        int slot = (int) (b & mask);
+        WorkBatch batch = (WorkBatch) SLOTS.getAcquire(slots, slot);
+        if (t == b)
+        {
+            // Last batch, race the thieves for it
+            if (!TOP.compareAndSet(this, t, t + 1)) batch = null;
+            BOTTOM.setOpaque(this, b + 1);
+        }
+        if (batch != null) SLOTS.setOpaque(slots, slot, null); // The slot stays ours until bottom passes it again
+        return batch;
+    }
+
+    /**
+     * Any thread: takes the oldest batch.
+     * @return null if the deque looked empty or another thief (or the owner) won the race.
+     */
+    public WorkBatch steal()
+    {
+        long t = (long) TOP.getAcquire(this);
+        VarHandle.fullFence(); // Read top before bottom
+        long b = (long) BOTTOM.getAcquire(this);
+        if (t >= b) return null;
+
+        WorkBatch batch = (WorkBatch) SLOTS.getAcquire(slots, (int) (t & mask));
+        if (batch == null || !TOP.compareAndSet(this, t, t + 1)) return null;
+        return batch;
+    }
+
+    /**
+     * Called by the owner of thief: steals up to half of the batches (at least one) and returns one of them, the rest go to thief's
+     * deque. Takes no more than thief has room for, and stops early when a race is lost.
+     * @return null if nothing could be stolen.
+     */
+    public WorkBatch stealHalf(WorkStealingDeque thief)
+    {
+        WorkBatch first = steal();
+        if (first == null) return null;
+
+        // Only thief's owner (the caller) pushes to it, so its free space cannot shrink behind our back
+        for (int more = Math.min(size() / 2, thief.remaining()); more > 0; more--)
+        {
+            WorkBatch batch = steal();
+            if (batch == null) break;
+            thief.push(batch);
+        }
+        return first;
+    }
+
+    /**
+     * Free slots, exact when called by the owner.
+     */
+    public int remaining()
+    {
+        return slots.length - size();
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.mrgarbagegamer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CombinationRanksTest
+{
+    private static final int N = Grid.NUM_CELLS;
+
+    @Test
+    public void unrankInvertsRank()
+    {
+        for (int k = 1; k <= 3; k++)
+        {
+            long total = CombinationRanks.binomial(N, k);
+            int[] previous = null;
+            for (long rank = 0; rank < total; rank++)
+            {
+                int[] combination = CombinationRanks.unrank(rank, k);
+                assertEquals(rank, CombinationRanks.rank(combination, k));
+                if (previous != null) assertTrue(compare(previous, combination) < 0, "ranks out of lexicographic order at " + rank);
+                previous = combination;
+            }
+        }
+
+        // Spot checks where exhausting every rank would take too long
+        for (int k : new int[] {7, 8, 13})
+        {
+            long total = CombinationRanks.binomial(N, k);
+            for (long rank : new long[] {0, 1, total / 3, total / 2, total - 2, total - 1})
+            {
+                assertEquals(rank, CombinationRanks.rank(CombinationRanks.unrank(rank, k), k), "k=" + k);
+            }
+            int[] last = new int[k];
+            for (int j = 0; j < k; j++) last[j] = N - k + j;
+            assertArrayEquals(last, CombinationRanks.unrank(total - 1, k));
+        }
+    }
+
+    @Test
+    public void countMatchesTheRanksBelowTheFirstClickEnd()
+    {
+        for (int k = 1; k <= 3; k++)
+        {
+            for (int firstClickEnd : new int[] {0, 1, 5, 50, N - k, N})
+            {
+                long count = CombinationRanks.count(k, firstClickEnd);
+                if (count > 0) assertTrue(CombinationRanks.unrank(count - 1, k)[0] < firstClickEnd);
+                if (count < CombinationRanks.binomial(N, k)) assertTrue(CombinationRanks.unrank(count, k)[0] >= firstClickEnd);
+            }
+        }
+    }
+
+    @Test
+    public void partitionCoversEveryRankOnce()
+    {
+        for (int k : new int[] {1, 2, 7, 13})
+        {
+            for (int firstClickEnd : new int[] {1, 20, N})
+            {
+                long total = CombinationRanks.count(k, firstClickEnd);
+                for (int numUnits : new int[] {1, 3, 64, 1000})
+                {
+                    List<RankRange> ranges = CombinationRanks.partition(k, firstClickEnd, numUnits);
+                    assertTrue(ranges.size() <= numUnits);
+                    long next = 0, smallest = Long.MAX_VALUE, largest = 0;
+                    for (RankRange range : ranges)
+                    {
+                        assertEquals(next, range.start, "gap or overlap before " + range);
+                        assertTrue(range.size() > 0);
+                        smallest = Math.min(smallest, range.size());
+                        largest = Math.max(largest, range.size());
+                        next = range.end;
+                    }
+                    assertEquals(total, next);
+                    assertTrue(largest - smallest <= 1, "units differ by more than one combination");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void partitionRefusesRanksBeyondALong()
+    {
+        assertNull(CombinationRanks.partition(40, N, 8));
+    }
+
+    @Test
+    public void seedStackGeneratesExactlyItsRange()
+    {
+        for (int k = 1; k <= 3; k++)
+        {
+            long total = CombinationRanks.binomial(N, k);
+            long[] bounds = {0, 1, 2, 107, 108, 109, 5000, total / 2, total - 109, total - 1, total};
+            for (long start : bounds)
+            {
+                for (long end : bounds)
+                {
+                    if (start < 0 || end > total || start > end) continue;
+                    List<int[]> combinations = expand(CombinationRanks.seedStack(new RankRange(start, end), k), k);
+                    assertEquals(end - start, combinations.size(), "k=" + k + " [" + start + ", " + end + ")");
+                    for (int i = 0; i < combinations.size(); i++)
+                    {
+                        assertEquals(start + i, CombinationRanks.rank(combinations.get(i), k), "k=" + k + " [" + start + ", " + end + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    // Walks the states the way the generators do: pop, then every next click in [start, end), deeper levels up to the board's end
+    private static List<int[]> expand(Deque<CombinationState> stack, int k)
+    {
+        List<int[]> combinations = new ArrayList<>();
+        while (!stack.isEmpty())
+        {
+            CombinationState state = stack.pop();
+            assertTrue(state.start < state.end && state.end <= N, "seed reaches past the board");
+            expand(state.indices, state.size, state.start, state.end, k, combinations);
+        }
+        return combinations;
+    }
+
+    private static void expand(int[] prefix, int size, int start, int end, int k, List<int[]> out)
+    {
+        for (int x = start; x < end; x++)
+        {
+            int[] indices = prefix.clone();
+            indices[size] = x;
+            if (size + 1 == k) out.add(indices);
+            else expand(indices, size + 1, x + 1, N, k, out);
+        }
+    }
+
+    private static int compare(int[] a, int[] b)
+    {
+        for (int i = 0; i < a.length; i++) if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+        return 0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.mrgarbagegamer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class LinearSolverTest
+{
+    private static final Grid[] GRIDS = {new Grid13(), new Grid22(), new Grid35()};
+
+    // Index format in, solved or not out
+    private static boolean solves(Grid grid, int[] clicks)
+    {
+        Grid copy = grid.clone();
+        long[] mask = Grid.indicesToBitmask(clicks);
+        copy.clickBitmask(mask[0], mask[1]);
+        return copy.isSolved();
+    }
+
+    @Test
+    public void minimumSolutionClearsTheGrid()
+    {
+        for (Grid grid : GRIDS)
+        {
+            LinearSolver solver = new LinearSolver(grid);
+            assertTrue(solver.isSolvable());
+            int[] minimum = solver.findMinimumSolution();
+            assertNotNull(minimum);
+            assertTrue(solves(grid, minimum), grid.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void minimumSolutionOfQ13IsTheKnownSevenClicks()
+    {
+        int[] expected = {301, 303, 305, 307, 309, 311, 313};
+        int[] minimum = new LinearSolver(new Grid13()).findMinimumSolution();
+        for (int i = 0; i < minimum.length; i++) minimum[i] = Grid.indexToPacked(minimum[i]);
+        assertArrayEquals(expected, minimum);
+    }
+
+    @Test
+    public void nullSpaceEnumerationFindsEverySolutionOnce()
+    {
+        for (Grid grid : GRIDS)
+        {
+            LinearSolver solver = new LinearSolver(grid);
+            int minimumWeight = solver.findMinimumSolution().length;
+
+            Set<List<Integer>> seen = new HashSet<>();
+            for (int weight = 0; weight <= Grid.NUM_CELLS; weight++)
+            {
+                for (int[] solution : solver.findSolutionsOfWeight(weight))
+                {
+                    assertEquals(weight, solution.length);
+                    assertTrue(weight >= minimumWeight);
+                    assertTrue(solves(grid, solution));
+                    assertTrue(seen.add(Arrays.stream(solution).boxed().toList()), "solution enumerated twice");
+                }
+            }
+            assertEquals(1L << solver.getNullity(), seen.size(), grid.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void agreesWithLightChasing()
+    {
+        for (Grid grid : GRIDS)
+        {
+            LinearSolver solver = new LinearSolver(grid);
+            assertEquals(1L << solver.getNullity(), new LightChaser(grid, 2).findAllSolutions().size(), grid.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.mrgarbagegamer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class RevolvingDoorGeneratorTest
+{
+    @Test
+    public void stepVisitsEverySubsetOnceSwappingOneElement()
+    {
+        for (int n = 1; n <= 14; n++)
+        {
+            for (int t = 0; t <= n; t++)
+            {
+                int[] c = new int[t + 3];
+                long subset = 0;
+                for (int j = 1; j <= t; j++)
+                {
+                    c[j] = j - 1;
+                    subset |= 1L << (j - 1);
+                }
+                c[t + 1] = n;
+                c[t + 2] = n;
+
+                Set<Long> seen = new HashSet<>();
+                seen.add(subset);
+                int swap;
+                while ((swap = RevolvingDoorGenerator.step(c, t, n)) != RevolvingDoorGenerator.DONE)
+                {
+                    int out = swap >>> 16, in = swap & 0xFFFF;
+                    assertTrue((subset & (1L << out)) != 0, "element left that was not in the subset");
+                    assertTrue((subset & (1L << in)) == 0, "element entered that was already in the subset");
+                    subset ^= (1L << out) | (1L << in);
+                    assertEquals(subset, subsetOf(c, t), "c[] does not hold the reported subset");
+                    assertTrue(seen.add(subset), "subset visited twice, n=" + n + " t=" + t);
+                }
+                assertEquals(CombinationRanks.binomial(n, t), seen.size(), "n=" + n + " t=" + t);
+            }
+        }
+    }
+
+    // Also checks that c[1..t] is increasing and inside [0, n)
+    private static long subsetOf(int[] c, int t)
+    {
+        long subset = 0;
+        for (int j = 1; j <= t; j++)
+        {
+            if (j > 1) assertTrue(c[j - 1] < c[j]);
+            subset |= 1L << c[j];
+        }
+        return subset;
+    }
+
+    @Test
+    public void generatorCountsEveryCandidateOfItsRange()
+    {
+        // Q13 needs 7 clicks, so nothing in 4 stops the walk early
+        CombinationQueueArray queueArray = new CombinationQueueArray(1, 1);
+        new RevolvingDoorGenerator("Test", queueArray, 4, 0, 3, new Grid13()).run();
+        assertNull(queueArray.getWinningCombination());
+        assertEquals(CombinationRanks.count(4, 3), queueArray.getCandidates());
+    }
+
+    @Test
+    public void generatorFindsTheKnownSolution()
+    {
+        int first = Grid.packedToIndex(301);
+        CombinationQueueArray queueArray = new CombinationQueueArray(1, 1);
+        new RevolvingDoorGenerator("Test", queueArray, 7, first, first + 1, new Grid13()).run();
+
+        int[] winner = queueArray.getWinningCombination();
+        assertNotNull(winner);
+        int[] packed = new int[winner.length];
+        for (int i = 0; i < winner.length; i++) packed[i] = Grid.indexToPacked(winner[i]);
+        assertArrayEquals(new int[] {301, 303, 305, 307, 309, 311, 313}, packed);
+    }
+}
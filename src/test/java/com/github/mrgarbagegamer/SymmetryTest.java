@@ -0,0 +1,128 @@
+package com.github.mrgarbagegamer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class SymmetryTest
+{
+    private static final int N = Grid.NUM_CELLS;
+
+    @Test
+    public void findsTheMirrorsOfTheSymmetricPuzzles()
+    {
+        assertEquals(4, Symmetry.of(new Grid13()).order());
+        assertEquals(4, Symmetry.of(new Grid22()).order());
+        assertEquals(2, Symmetry.of(new Grid35()).order());
+    }
+
+    @Test
+    public void acceptsExactlyTheSmallestMemberOfEachOrbit()
+    {
+        for (Grid grid : new Grid[] {new Grid13(), new Grid35()})
+        {
+            Symmetry symmetry = Symmetry.of(grid);
+            assertNotNull(symmetry);
+            for (int k = 1; k <= 3; k++)
+            {
+                Map<String, Integer> canonicalPerOrbit = new HashMap<>();
+                int[] indices = new int[k];
+                checkCombinations(symmetry, indices, 0, 0, k, canonicalPerOrbit);
+
+                for (Map.Entry<String, Integer> orbit : canonicalPerOrbit.entrySet())
+                {
+                    assertEquals(1, orbit.getValue(), "orbit " + orbit.getKey() + " of " + grid.getClass().getSimpleName());
+                }
+            }
+        }
+    }
+
+    // Every combination of k clicks starting with indices[0..size), checked against a brute-force minimum of its orbit
+    private static void checkCombinations(Symmetry symmetry, int[] indices, int size, int start, int k, Map<String, Integer> canonicalPerOrbit)
+    {
+        for (int x = start; x < N; x++)
+        {
+            indices[size] = x;
+            if (size + 1 < k)
+            {
+                checkCombinations(symmetry, indices, size + 1, x + 1, k, canonicalPerOrbit);
+                continue;
+            }
+
+            long lo = 0L, hi = 0L;
+            for (int j = 0; j < k; j++)
+            {
+                if (indices[j] < 64) lo |= 1L << indices[j]; else hi |= 1L << (indices[j] - 64);
+            }
+            long[] orbit = new long[2 * symmetry.order()];
+            int count = symmetry.orbit(lo, hi, orbit);
+            assertEquals(0, symmetry.order() % count, "orbit size must divide the group order");
+            assertEquals(lo, orbit[0]);
+            assertEquals(hi, orbit[1]);
+
+            int[] smallest = cells(orbit[0], orbit[1]);
+            for (int i = 1; i < count; i++)
+            {
+                int[] image = cells(orbit[i << 1], orbit[(i << 1) + 1]);
+                assertEquals(k, image.length);
+                if (Arrays.compare(image, smallest) < 0) smallest = image;
+            }
+
+            long[] prefixImages = new long[2 * (symmetry.order() - 1)];
+            symmetry.prefixImages(indices, k - 1, prefixImages);
+            boolean canonical = symmetry.isCanonical(lo, hi, prefixImages, indices[k - 1]);
+            assertEquals(Arrays.equals(smallest, Arrays.copyOf(indices, k)), canonical, Arrays.toString(Arrays.copyOf(indices, k)));
+
+            if (canonical)
+            {
+                // Pruning must never cut a canonical combination
+                for (int m = 1; m <= k; m++) assertTrue(symmetry.canBeCanonical(indices, m), "pruned a prefix of a canonical combination");
+                canonicalPerOrbit.merge(Arrays.toString(smallest), 1, Integer::sum);
+            }
+            else
+            {
+                assertFalse(symmetry.canBeCanonical(indices, k), "a full combination that is not canonical passed canBeCanonical()");
+                canonicalPerOrbit.putIfAbsent(Arrays.toString(smallest), 0);
+            }
+        }
+    }
+
+    @Test
+    public void mirrorsMapSolutionsToSolutions()
+    {
+        Grid grid = new Grid13();
+        Symmetry symmetry = Symmetry.of(grid);
+        int[] solution = {301, 303, 305, 307, 309, 311, 313};
+        long lo = 0L, hi = 0L;
+        for (int packed : solution)
+        {
+            int cell = Grid.packedToIndex(packed);
+            if (cell < 64) lo |= 1L << cell; else hi |= 1L << (cell - 64);
+        }
+
+        long[] orbit = new long[2 * symmetry.order()];
+        int count = symmetry.orbit(lo, hi, orbit);
+        for (int i = 0; i < count; i++)
+        {
+            Grid clone = grid.clone();
+            clone.clickBitmask(orbit[i << 1], orbit[(i << 1) + 1]);
+            assertTrue(clone.isSolved(), "image " + i + " of the Q13 solution does not solve it");
+        }
+    }
+
+    private static int[] cells(long lo, long hi)
+    {
+        int[] cells = new int[Long.bitCount(lo) + Long.bitCount(hi)];
+        int i = 0;
+        for (long bits = lo; bits != 0; bits &= bits - 1) cells[i++] = Long.numberOfTrailingZeros(bits);
+        for (long bits = hi; bits != 0; bits &= bits - 1) cells[i++] = 64 + Long.numberOfTrailingZeros(bits);
+        return cells;
+    }
+}
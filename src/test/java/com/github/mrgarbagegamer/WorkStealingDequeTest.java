@@ -0,0 +1,135 @@
+package com.github.mrgarbagegamer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+public class WorkStealingDequeTest
+{
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo()
+    {
+        assertEquals(2, new WorkStealingDeque(1).getCapacity());
+        assertEquals(8, new WorkStealingDeque(8).getCapacity());
+        assertEquals(16, new WorkStealingDeque(9).getCapacity());
+    }
+
+    @Test
+    public void ownerPopsLastInAndThievesStealFirstIn()
+    {
+        WorkStealingDeque deque = new WorkStealingDeque(4);
+        WorkBatch[] batches = newBatches(4);
+        for (WorkBatch batch : batches) assertTrue(deque.push(batch));
+        assertFalse(deque.push(new WorkBatch(1)), "push into a full deque");
+        assertEquals(0, deque.remaining());
+
+        assertSame(batches[3], deque.pop());
+        assertSame(batches[0], deque.steal());
+        assertSame(batches[2], deque.pop());
+        assertSame(batches[1], deque.steal());
+        assertNull(deque.pop());
+        assertNull(deque.steal());
+        assertEquals(0, deque.size());
+
+        // Wrapping around the ring keeps the order
+        for (int round = 0; round < 3; round++)
+        {
+            for (WorkBatch batch : batches) assertTrue(deque.push(batch));
+            for (int i = 3; i >= 0; i--) assertSame(batches[i], deque.pop());
+        }
+    }
+
+    @Test
+    public void stealHalfMovesHalfOfTheVictimsBatches()
+    {
+        WorkStealingDeque victim = new WorkStealingDeque(16), thief = new WorkStealingDeque(16);
+        WorkBatch[] batches = newBatches(10);
+        for (WorkBatch batch : batches) victim.push(batch);
+
+        assertSame(batches[0], victim.stealHalf(thief));
+        assertEquals(4, thief.size());
+        assertEquals(5, victim.size());
+        for (int i = 4; i >= 1; i--) assertSame(batches[i], thief.pop(), "stolen batches keep their order");
+
+        // Never more than the thief has room for
+        WorkStealingDeque small = new WorkStealingDeque(2);
+        small.push(new WorkBatch(1));
+        small.push(new WorkBatch(1));
+        assertSame(batches[5], victim.stealHalf(small));
+        assertEquals(2, small.size());
+        assertEquals(4, victim.size());
+
+        assertNull(new WorkStealingDeque(4).stealHalf(thief));
+    }
+
+    @Test
+    public void everyBatchIsTakenOnceUnderContention() throws InterruptedException
+    {
+        final int numBatches = 200_000, numThieves = 3;
+        WorkBatch[] batches = newBatches(numBatches);
+        Map<WorkBatch, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < numBatches; i++) ids.put(batches[i], i);
+        AtomicIntegerArray taken = new AtomicIntegerArray(numBatches);
+
+        WorkStealingDeque victim = new WorkStealingDeque(64);
+        AtomicBoolean ownerDone = new AtomicBoolean();
+        Thread[] thieves = new Thread[numThieves];
+        for (int i = 0; i < numThieves; i++)
+        {
+            WorkStealingDeque own = new WorkStealingDeque(32);
+            thieves[i] = new Thread(() ->
+            {
+                while (true)
+                {
+                    boolean finished = ownerDone.get(); // Read before the last look, so nothing pushed after it is missed
+                    WorkBatch batch = victim.stealHalf(own);
+                    if (batch == null)
+                    {
+                        if (finished) break;
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    taken.incrementAndGet(ids.get(batch));
+                    for (WorkBatch more; (more = own.pop()) != null; ) taken.incrementAndGet(ids.get(more));
+                }
+            }, "Thief " + i);
+            thieves[i].start();
+        }
+
+        // The owner pushes everything, popping back one batch in three and whenever the deque is full
+        for (int i = 0; i < numBatches; i++)
+        {
+            while (!victim.push(batches[i]))
+            {
+                WorkBatch batch = victim.pop();
+                if (batch != null) taken.incrementAndGet(ids.get(batch));
+            }
+            if (i % 3 == 0)
+            {
+                WorkBatch batch = victim.pop();
+                if (batch != null) taken.incrementAndGet(ids.get(batch));
+            }
+        }
+        for (WorkBatch batch; (batch = victim.pop()) != null; ) taken.incrementAndGet(ids.get(batch));
+        ownerDone.set(true);
+        for (Thread thief : thieves) thief.join();
+
+        for (int i = 0; i < numBatches; i++) assertEquals(1, taken.get(i), "batch " + i);
+    }
+
+    private static WorkBatch[] newBatches(int count)
+    {
+        WorkBatch[] batches = new WorkBatch[count];
+        for (int i = 0; i < count; i++) batches[i] = new WorkBatch(1);
+        return batches;
+    }
+}